@@ -0,0 +1,125 @@
+package com.redtape.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Resolves rows that would keep Hibernate's schema update
+ * ({@code ddl-auto=update}) from adding a unique constraint. That update only
+ * logs a failed ALTER, so a database that collected duplicates before the
+ * constraint existed would otherwise carry on without it.
+ *
+ * Runs before the entity manager factory, and so before the schema update.
+ * Each step is skipped when its table does not exist yet or already has the
+ * unique index.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SchemaCleanup {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    @PostConstruct
+    public void run() {
+        // The JPA transaction manager needs the entity manager factory, which waits for us
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        if (needsUniqueIndex("cart", "user_id")) {
+            mergeDuplicateCarts(transactionTemplate);
+        }
+        if (needsUniqueIndex("user_review", "user_id", "product_model_no")) {
+            deleteDuplicateReviews();
+        }
+    }
+
+    /**
+     * One cart per user (Cart.user). A user with several keeps the newest;
+     * lines from the others move into it unless it already has that product,
+     * newer carts first, and the rest are deleted.
+     */
+    private void mergeDuplicateCarts(TransactionTemplate transactionTemplate) {
+        List<long[]> owners = jdbcTemplate.query(
+                "SELECT user_id, MAX(id) FROM cart GROUP BY user_id HAVING COUNT(*) > 1",
+                (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2)});
+        for (long[] owner : owners) {
+            long userId = owner[0];
+            long keepId = owner[1];
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<Long> products = new HashSet<>(jdbcTemplate.queryForList(
+                        "SELECT product_model_no FROM cart_item WHERE cart_id = ?", Long.class, keepId));
+                List<long[]> lines = jdbcTemplate.query(
+                        "SELECT i.id, i.product_model_no FROM cart_item i JOIN cart c ON c.id = i.cart_id " +
+                        "WHERE c.user_id = ? AND c.id <> ? ORDER BY c.id DESC, i.id",
+                        (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2)}, userId, keepId);
+                for (long[] line : lines) {
+                    if (products.add(line[1])) {
+                        jdbcTemplate.update("UPDATE cart_item SET cart_id = ? WHERE id = ?", keepId, line[0]);
+                    }
+                }
+                jdbcTemplate.update("DELETE i FROM cart_item i JOIN cart c ON c.id = i.cart_id " +
+                        "WHERE c.user_id = ? AND c.id <> ?", userId, keepId);
+                jdbcTemplate.update("DELETE FROM cart WHERE user_id = ? AND id <> ?", userId, keepId);
+                // cart_item.price is the line subtotal. The version column may not exist yet, and
+                // nothing has read the cart, so it is left alone
+                jdbcTemplate.update("UPDATE cart SET total_amount = " +
+                        "(SELECT COALESCE(SUM(price), 0) FROM cart_item WHERE cart_id = ?) WHERE id = ?", keepId, keepId);
+            });
+        }
+        if (!owners.isEmpty()) {
+            log.warn("Merged duplicate carts of {} users so cart.user_id can be made unique", owners.size());
+        }
+    }
+
+    /**
+     * One review per user per product (uk_review_user_product). The first
+     * review stands, as it would have had the constraint been there: later
+     * ones are deleted. Rating aggregates are rebuilt from user_review at
+     * startup, so they drop the deleted reviews too.
+     */
+    private void deleteDuplicateReviews() {
+        int deleted = jdbcTemplate.update("DELETE r FROM user_review r JOIN user_review k " +
+                "ON k.user_id = r.user_id AND k.product_model_no = r.product_model_no " +
+                "AND (k.review_date < r.review_date OR (k.review_date = r.review_date AND k.id < r.id))");
+        if (deleted > 0) {
+            log.warn("Deleted {} duplicate reviews so uk_review_user_product can be added", deleted);
+        }
+    }
+
+    // True when the table exists and no unique index covers exactly these columns, in this order
+    private boolean needsUniqueIndex(String table, String... columns) {
+        Integer tables = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?",
+                Integer.class, table);
+        if (tables == null || tables == 0) {
+            // Hibernate creates it with the constraint
+            return false;
+        }
+        Integer indexes = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT INDEX_NAME FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND NON_UNIQUE = 0 GROUP BY INDEX_NAME " +
+                "HAVING GROUP_CONCAT(COLUMN_NAME ORDER BY SEQ_IN_INDEX) = ?) unique_indexes",
+                Integer.class, table, String.join(",", columns));
+        return indexes == null || indexes == 0;
+    }
+
+    /** Makes the entity manager factory, and with it the schema update, wait for the cleanup. */
+    @Component
+    static class EntityManagerFactoryDependsOnSchemaCleanup extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependsOnSchemaCleanup() {
+            super(SchemaCleanup.class);
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package com.redtape.controller;
 
 import com.redtape.dto.AddToCartRequest;
+import com.redtape.dto.CartDTO;
+import com.redtape.dto.CartItemDTO;
 import com.redtape.dto.UpdateCartItemQuantityRequest;
 import com.redtape.entity.Cart;
-import com.redtape.entity.CartItem;
+import com.redtape.service.AuthenticatedUser;
 import com.redtape.service.CartService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -20,16 +25,22 @@ public class CartController {
 
     // Get or create a cart for the user
     @GetMapping("/user/{email}")
-    public ResponseEntity<Cart> getCartByUserEmail(@PathVariable String email) {
-        Cart cart = cartService.getOrCreateCartByEmail(email);
+    // Returns the compact CartDTO rather than the entity graph (no user, only img1 per product)
+    public ResponseEntity<CartDTO> getCartByUserEmail(@PathVariable String email) {
+        CartDTO cart = cartService.getCartViewByEmail(email);
         return ResponseEntity.ok(cart);
     }
 
     // Save or update the full cart (not used much by frontend)
     @PostMapping
     public ResponseEntity<Cart> createOrUpdateCart(@RequestBody Cart cart) {
-        Cart updatedCart = cartService.saveOrUpdateCart(cart);
-        return ResponseEntity.ok(updatedCart);
+        try {
+            Cart updatedCart = cartService.saveOrUpdateCart(cart);
+            return ResponseEntity.ok(updatedCart);
+        } catch (OptimisticLockingFailureException e) {
+            // The cart changed since the client read it (its version is stale)
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 
     // ✅ Add an item to the cart
@@ -66,8 +77,49 @@ public class CartController {
 
     // ✅ Get all cart items for user
     @GetMapping("/user/{email}/items")
-    public ResponseEntity<List<CartItem>> getAllItems(@PathVariable String email) {
-        List<CartItem> items = cartService.getAllItemsByEmail(email);
+    public ResponseEntity<List<CartItemDTO>> getAllItems(@PathVariable String email) {
+        List<CartItemDTO> items = cartService.getItemViewsByEmail(email);
         return ResponseEntity.ok(items);
     }
+
+    // ===================== Token-identified cart =====================
+    // Same operations for the caller named by the bearer token; 401 without one
+
+    @GetMapping("/me")
+    public ResponseEntity<CartDTO> getMyCart(@AuthenticationPrincipal AuthenticatedUser me) {
+        return me == null ? unauthorized() : getCartByUserEmail(me.email());
+    }
+
+    @PostMapping("/me/add")
+    public ResponseEntity<Cart> addItemToMyCart(@AuthenticationPrincipal AuthenticatedUser me,
+                                                @RequestBody AddToCartRequest request) {
+        return me == null ? unauthorized() : addItemToCart(me.email(), request);
+    }
+
+    @PutMapping("/me/items/{modelNo}")
+    public ResponseEntity<Cart> updateMyItemQuantity(@AuthenticationPrincipal AuthenticatedUser me,
+                                                     @PathVariable Long modelNo,
+                                                     @RequestBody UpdateCartItemQuantityRequest request) {
+        return me == null ? unauthorized() : updateItemQuantity(me.email(), modelNo, request);
+    }
+
+    @DeleteMapping("/me/remove/{modelNo}")
+    public ResponseEntity<Cart> removeItemFromMyCart(@AuthenticationPrincipal AuthenticatedUser me,
+                                                     @PathVariable Long modelNo) {
+        return me == null ? unauthorized() : removeItemFromCart(me.email(), modelNo);
+    }
+
+    @DeleteMapping("/me/clear")
+    public ResponseEntity<Void> clearMyCart(@AuthenticationPrincipal AuthenticatedUser me) {
+        return me == null ? unauthorized() : clearCartByEmail(me.email());
+    }
+
+    @GetMapping("/me/items")
+    public ResponseEntity<List<CartItemDTO>> getMyItems(@AuthenticationPrincipal AuthenticatedUser me) {
+        return me == null ? unauthorized() : getAllItems(me.email());
+    }
+
+    private static <T> ResponseEntity<T> unauthorized() {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    }
 }
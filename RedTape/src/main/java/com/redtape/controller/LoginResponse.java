@@ -12,4 +12,6 @@ import lombok.Setter;
 public class LoginResponse {
 	private String email;
     private Role role;
+    // Send back as "Authorization: Bearer <token>"
+    private String token;
 }
@@ -1,10 +1,26 @@
 package com.redtape.controller;
 
+import com.redtape.dto.OrderIntakeStatus;
+import com.redtape.dto.OrderSummaryDTO;
+import com.redtape.dto.OrderTransitionRequest;
+import com.redtape.dto.OrderTransitionResult;
 import com.redtape.entity.Order;
 import com.redtape.entity.OrderStatus;
+import com.redtape.entity.OrderStatusHistory;
+import com.redtape.service.AuthenticatedUser;
+import com.redtape.service.InsufficientStockException;
+import com.redtape.service.InvalidStatusTransitionException;
+import com.redtape.service.OrderIntakeFullException;
+import com.redtape.service.OrderIntakeService;
 import com.redtape.service.OrderService;
+import com.redtape.service.OrderStatusService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -14,16 +30,55 @@ import java.util.List;
 @RequiredArgsConstructor
 public class OrderController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final OrderService orderService;
+    private final OrderIntakeService orderIntakeService;
+    private final OrderStatusService orderStatusService;
 
     @GetMapping
     public List<Order> getAllOrders() {
         return orderService.getAllOrders();
     }
 
+    // ✅ Paged listing; orders, items and products load in a fixed number of queries
+    @GetMapping("/paged")
+    public Page<Order> getOrdersPaged(@RequestParam(defaultValue = "0") int page,
+                                      @RequestParam(defaultValue = "20") int size) {
+        return orderService.getOrders(PageRequest.of(page, Math.min(size, MAX_PAGE_SIZE)));
+    }
+
     @PostMapping
-    public Order createOrder(@RequestBody Order order) {
-        return orderService.createOrder(order);
+    public ResponseEntity<Order> createOrder(@RequestBody Order order) {
+        try {
+            return ResponseEntity.ok(orderService.createOrder(order));
+        } catch (InsufficientStockException e) {
+            // ✅ Sold out (or not enough left); nothing was reserved or saved
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(null);
+        }
+    }
+
+    // ✅ Queue an order and answer with its reference right away; poll /intake/{reference} for the result
+    @PostMapping("/intake")
+    public ResponseEntity<OrderIntakeStatus> submitOrder(@RequestBody Order order) {
+        try {
+            return ResponseEntity.accepted().body(orderIntakeService.submit(order));
+        } catch (OrderIntakeFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(null);
+        }
+    }
+
+    @GetMapping("/intake/{reference}")
+    public ResponseEntity<OrderIntakeStatus> getIntakeStatus(@PathVariable String reference) {
+        return orderIntakeService.status(reference)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/{id}")
@@ -35,19 +90,68 @@ public class OrderController {
 
     @PutMapping("/{id}/status")
     public ResponseEntity<Order> updateOrderStatus(@PathVariable Long id, @RequestParam OrderStatus status) {
-        return orderService.updateOrderStatus(id, status)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+        try {
+            return orderService.updateOrderStatus(id, status)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (InvalidStatusTransitionException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    // ✅ Apply one status to many orders; each id gets its own outcome
+    @PostMapping("/status/bulk")
+    public ResponseEntity<List<OrderTransitionResult>> bulkUpdateStatus(@RequestBody OrderTransitionRequest request) {
+        if (request.getStatus() == null || request.getOrderIds() == null) {
+            return ResponseEntity.badRequest().body(null);
+        }
+        return ResponseEntity.ok(orderStatusService.transition(request.getOrderIds(), request.getStatus()));
+    }
+
+    @GetMapping("/{id}/history")
+    public List<OrderStatusHistory> getStatusHistory(@PathVariable Long id) {
+        return orderStatusService.getHistory(id);
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> cancelOrder(@PathVariable Long id) {
-        boolean cancelled = orderService.cancelOrder(id);
-        return cancelled ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+        try {
+            boolean cancelled = orderService.cancelOrder(id);
+            return cancelled ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+        } catch (InvalidStatusTransitionException e) {
+            // Shipped or delivered orders can no longer be cancelled
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 
     @GetMapping("/user/{userId}")
     public List<Order> getOrdersByUserId(@PathVariable Long userId) {
         return orderService.getOrdersByUserId(userId);
     }
+
+    @GetMapping("/user/{userId}/paged")
+    public Page<Order> getOrdersByUserIdPaged(@PathVariable Long userId,
+                                              @RequestParam(defaultValue = "0") int page,
+                                              @RequestParam(defaultValue = "20") int size) {
+        return orderService.getOrdersByUserId(userId, PageRequest.of(page, Math.min(size, MAX_PAGE_SIZE)));
+    }
+
+    // ✅ Order-history page: summaries with item name/thumbnail only, no full product rows
+    @GetMapping("/user/{userId}/summary")
+    public Page<OrderSummaryDTO> getOrderSummaries(@PathVariable Long userId,
+                                                   @RequestParam(defaultValue = "0") int page,
+                                                   @RequestParam(defaultValue = "20") int size) {
+        return orderService.getOrderSummariesByUserId(userId, PageRequest.of(page, Math.min(size, MAX_PAGE_SIZE)));
+    }
+
+    // ✅ The caller's own order history, identified by the bearer token
+    @GetMapping("/me/summary")
+    public ResponseEntity<Page<OrderSummaryDTO>> getMyOrderSummaries(@AuthenticationPrincipal AuthenticatedUser me,
+                                                                     @RequestParam(defaultValue = "0") int page,
+                                                                     @RequestParam(defaultValue = "20") int size) {
+        if (me == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(getOrderSummaries(me.id(), page, size));
+    }
 }
@@ -1,16 +1,34 @@
 package com.redtape.controller;
 
+import com.redtape.dto.CursorPage;
+import com.redtape.dto.ImportReport;
 import com.redtape.entity.Category;
 import com.redtape.entity.Product;
 import com.redtape.entity.SubCategory;
-import com.redtape.repository.ProductRepository;
+import com.redtape.service.CatalogResponseCache;
+import com.redtape.service.CatalogVersions;
+import com.redtape.service.ProductExportService;
+import com.redtape.service.ProductImportService;
 import com.redtape.service.ProductService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/products")  // Base URL path for all product-related APIs
@@ -18,24 +36,58 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;  // Service layer for business logic
+    private final ProductExportService productExportService;  // Streaming catalog export
+    private final ProductImportService productImportService;  // Chunked bulk import
+    private final CatalogVersions catalogVersions;  // ETag per product and listing
+    private final CatalogResponseCache catalogResponseCache;  // Pre-serialized category/subcategory pages
 
-    @Autowired
-    private ProductRepository repository;        // Direct repository access for some queries
+    private static final int MAX_PAGE_SIZE = 100;  // Largest keyset slice served by /scroll
+
+    @Value("${redtape.http-cache.product-max-age-s:60}")
+    private long productMaxAgeSeconds;
+
+    @Value("${redtape.http-cache.listing-max-age-s:30}")
+    private long listingMaxAgeSeconds;
 
     // ✅ Get all products
     @GetMapping("/getAllProducts")
-    public ResponseEntity<List<Product>> getAllProducts() {
+    public ResponseEntity<List<Product>> getAllProducts(WebRequest request) {
         // Fetch all products and return HTTP 200 OK with list of products
-        return ResponseEntity.ok(productService.getAllProducts());
+        return listing(request, catalogVersions.ofCatalog(), () -> ResponseEntity.ok(productService.getAllProducts()));
+    }
+
+    // ✅ Stream the whole catalog as newline-delimited JSON, one product per line
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        // Rows are written as they are read, so memory stays flat regardless of catalog size
+        StreamingResponseBody body = productExportService::exportCatalog;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // ✅ Keyset (cursor) pagination over all products, ordered by model number
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<Product>> scrollProducts(@RequestParam(required = false) String cursor,
+                                                              @RequestParam(defaultValue = "20") int size) {
+        if (size < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(productService.getProductsAfter(cursor, Math.min(size, MAX_PAGE_SIZE)));
+        } catch (IllegalArgumentException e) {
+            // Malformed cursor
+            return ResponseEntity.badRequest().body(null);
+        }
     }
 
     // ✅ Get product by model number (primary method)
     @GetMapping("/model/{modelNo}")
-    public ResponseEntity<Product> getProductByModelNo(@PathVariable Long modelNo) {
+    public ResponseEntity<Product> getProductByModelNo(@PathVariable Long modelNo, WebRequest request) {
         // Find product by model number, return 200 OK if found else 404 Not Found
-        return productService.getProductByModelNo(modelNo)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+        return conditional(request, catalogVersions.ofProduct(modelNo),
+                CacheControl.maxAge(productMaxAgeSeconds, TimeUnit.SECONDS).cachePublic(),
+                () -> productService.getProductByModelNo(modelNo)
+                        .map(ResponseEntity::ok)
+                        .orElse(ResponseEntity.notFound().build()));
     }
 
     // ✅ Create a new product
@@ -45,11 +97,15 @@ public class ProductController {
         return ResponseEntity.ok(productService.addProduct(product));
     }
 
-    // ✅ Create multiple products
-    @PostMapping("/createProducts")
-    public ResponseEntity<List<Product>> createProducts(@RequestBody List<Product> products) {
-        // Add multiple products at once and return created list
-        return ResponseEntity.ok(productService.addProducts(products));
+    // ✅ Create multiple products (bulk import of a JSON array or a CSV file with a header row)
+    @PostMapping(value = "/createProducts", consumes = {MediaType.APPLICATION_JSON_VALUE, "text/csv"})
+    public ResponseEntity<ImportReport> createProducts(HttpServletRequest request) throws IOException {
+        // The body is streamed and written in chunks; the report lists every rejected row
+        ImportReport report = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.APPLICATION_JSON)
+                ? productImportService.importJson(request.getInputStream())
+                : productImportService.importCsv(request.getInputStream());
+        // An unreadable upload still returns the report, so the client knows which rows were saved
+        return report.isAborted() ? ResponseEntity.badRequest().body(report) : ResponseEntity.ok(report);
     }
 
     // ✅ Update product details
@@ -78,30 +134,40 @@ public class ProductController {
         return ResponseEntity.noContent().build();
     }
 
-    // ✅ Search products by name containing a query string
+    // ✅ Full-text product search, ranked by relevance
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchByName(@RequestParam String name) {
-        List<Product> products = productService.searchProductsByName(name);
+    public ResponseEntity<List<Product>> searchByName(@RequestParam String name,
+                                                      @RequestParam(defaultValue = "0") int page,
+                                                      @RequestParam(defaultValue = "50") int size) {
+        List<Product> products = productService.searchProductsByName(name, PageRequest.of(page, size)).getContent();
         // Return 204 No Content if no matches found, else 200 OK with list
         return products.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(products);
     }
 
+    // ✅ Full-text product search with paging metadata
+    @GetMapping("/search/paged")
+    public Page<Product> searchByNamePaged(@RequestParam String name,
+                                           @RequestParam(defaultValue = "0") int page,
+                                           @RequestParam(defaultValue = "10") int size) {
+        return productService.searchProductsByName(name, PageRequest.of(page, size));
+    }
+
     // ✅ Filter products by category (enum type)
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<Product>> getByCategory(@PathVariable Category category) {
-        List<Product> products = productService.getProductsByCategory(category);
-        // Return 204 No Content if empty list, else 200 OK
-        return products.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(products);
+    public ResponseEntity<byte[]> getByCategory(@PathVariable Category category, WebRequest request) {
+        // Return 204 No Content if empty list, else 200 OK with the cached JSON
+        return encodedListing(request, catalogVersions.ofCategory(category),
+                () -> serialized(request, catalogResponseCache.get(category, null), true));
     }
 
     // ✅ Filter products by subCategory (enum from String path)
     @GetMapping("/subCategory/{subCategory}")
-    public ResponseEntity<List<Product>> getProductsBySubCategory(@PathVariable String subCategory) {
+    public ResponseEntity<byte[]> getProductsBySubCategory(@PathVariable String subCategory, WebRequest request) {
         try {
             // Convert String to SubCategory enum, handle invalid values with 400 Bad Request
             SubCategory subCategoryEnum = SubCategory.valueOf(subCategory.toUpperCase());
-            List<Product> products = productService.getProductsBySubCategory(subCategoryEnum);
-            return ResponseEntity.ok(products);
+            return encodedListing(request, catalogVersions.ofSubCategory(subCategoryEnum),
+                    () -> serialized(request, catalogResponseCache.get(null, subCategoryEnum), false));
         } catch (IllegalArgumentException e) {
             // Invalid subCategory value passed
             return ResponseEntity.badRequest().body(null);
@@ -110,32 +176,69 @@ public class ProductController {
 
     // ✅ Filter products by price range (min and max prices)
     @GetMapping("/price-range")
-    public ResponseEntity<List<Product>> getByPriceRange(@RequestParam double min, @RequestParam double max) {
-        List<Product> products = productService.getProductsByPriceRange(min, max);
-        return products.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(products);
+    public ResponseEntity<List<Product>> getByPriceRange(@RequestParam double min, @RequestParam double max, WebRequest request) {
+        return listing(request, catalogVersions.ofCatalog(), () -> {
+            List<Product> products = productService.getProductsByPriceRange(min, max);
+            return products.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(products);
+        });
     }
 
     // ✅ Filter products by color (String match)
     @GetMapping("/color/{color}")
-    public ResponseEntity<List<Product>> getByColor(@PathVariable String color) {
-        List<Product> products = productService.getProductsByColor(color);
-        return products.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(products);
+    public ResponseEntity<List<Product>> getByColor(@PathVariable String color, WebRequest request) {
+        return listing(request, catalogVersions.ofCatalog(), () -> {
+            List<Product> products = productService.getProductsByColor(color);
+            return products.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(products);
+        });
     }
 
     // ✅ Filter products by minimum available quantity
     @GetMapping("/min-quantity")
-    public ResponseEntity<List<Product>> getByMinimumQuantity(@RequestParam int minQuantity) {
-        List<Product> products = productService.getProductsByMinQuantity(minQuantity);
-        return products.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(products);
+    public ResponseEntity<List<Product>> getByMinimumQuantity(@RequestParam int minQuantity, WebRequest request) {
+        return listing(request, catalogVersions.ofCatalog(), () -> {
+            List<Product> products = productService.getProductsByMinQuantity(minQuantity);
+            return products.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(products);
+        });
+    }
+
+    // ✅ Combined filter (any parameter may be omitted), served from the in-memory filter index
+    @GetMapping("/filter")
+    public ResponseEntity<List<Product>> filterProducts(@RequestParam(required = false) Category category,
+                                                        @RequestParam(required = false) SubCategory subCategory,
+                                                        @RequestParam(required = false) Double minPrice,
+                                                        @RequestParam(required = false) Double maxPrice,
+                                                        @RequestParam(required = false) String color,
+                                                        @RequestParam(required = false) Integer minQuantity,
+                                                        WebRequest request) {
+        return listing(request, catalogVersions.ofCatalog(), () -> {
+            List<Product> products = productService.searchProducts(category, subCategory, minPrice, maxPrice, color, minQuantity);
+            return products.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(products);
+        });
+    }
+
+    // ✅ Paginated version of the combined filter
+    @GetMapping("/filter/paged")
+    public Page<Product> filterProductsPaged(@RequestParam(required = false) Category category,
+                                             @RequestParam(required = false) SubCategory subCategory,
+                                             @RequestParam(required = false) Double minPrice,
+                                             @RequestParam(required = false) Double maxPrice,
+                                             @RequestParam(required = false) String color,
+                                             @RequestParam(required = false) Integer minQuantity,
+                                             @RequestParam(defaultValue = "0") int page,
+                                             @RequestParam(defaultValue = "10") int size) {
+        return productService.searchProducts(category, subCategory, minPrice, maxPrice, color, minQuantity,
+                PageRequest.of(page, size));
     }
 
-    // ✅ Filter products by category AND sub-category together (uses repository directly)
+    // ✅ Filter products by category AND sub-category together
     @GetMapping("/catAndSubCat/{category}/{subCategory}")
-    public List<Product> getProdbyCatAndSubCat(@PathVariable String category,
-                                               @PathVariable String subCategory) {
+    public ResponseEntity<byte[]> getProdbyCatAndSubCat(@PathVariable String category,
+                                                        @PathVariable String subCategory,
+                                                        WebRequest request) {
         SubCategory subCate = SubCategory.valueOf(subCategory.toUpperCase());
         Category cate = Category.valueOf(category.toUpperCase());
-        return repository.findByCategoryAndSubCategory(cate, subCate);
+        return encodedListing(request, catalogVersions.ofSlice(cate, subCate),
+                () -> serialized(request, catalogResponseCache.get(cate, subCate), false));
     }
     
     // ✅ Provide product name suggestions based on a query string (autocomplete feature)
@@ -144,4 +247,55 @@ public class ProductController {
         List<String> suggestions = productService.getProductNameSuggestions(query);
         return suggestions.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(suggestions);
     }
+
+    // ===================== HTTP caching =====================
+
+    // Writes a cached listing as-is: the gzipped bytes if the client accepts gzip, the plain JSON otherwise
+    private static ResponseEntity<byte[]> serialized(WebRequest request, CatalogResponseCache.Payload payload,
+                                                     boolean noContentWhenEmpty) {
+        if (noContentWhenEmpty && payload.empty()) {
+            return ResponseEntity.noContent().build();
+        }
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        return gzip
+                ? response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.gzip())
+                : response.body(payload.json());
+    }
+
+    private <T> ResponseEntity<T> listing(WebRequest request, CatalogVersions.Version version,
+                                          Supplier<ResponseEntity<T>> response) {
+        return conditional(request, version, CacheControl.maxAge(listingMaxAgeSeconds, TimeUnit.SECONDS).cachePublic(),
+                response);
+    }
+
+    // Listings written by serialized(): the body depends on Accept-Encoding, so their 304s must say so too
+    private ResponseEntity<byte[]> encodedListing(WebRequest request, CatalogVersions.Version version,
+                                                  Supplier<ResponseEntity<byte[]>> response) {
+        return conditional(request, version, CacheControl.maxAge(listingMaxAgeSeconds, TimeUnit.SECONDS).cachePublic(),
+                response, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    /**
+     * Answers a conditional GET from the resource's ETag alone: 304 if the
+     * client's copy is current, otherwise the response built by the supplier.
+     * checkNotModified also writes the ETag header, so only Cache-Control (and
+     * on a 304 the Vary the full response would carry) is added here.
+     */
+    private <T> ResponseEntity<T> conditional(WebRequest request, CatalogVersions.Version version,
+                                              CacheControl cacheControl, Supplier<ResponseEntity<T>> response,
+                                              String... vary) {
+        if (request.checkNotModified(version.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).varyBy(vary).build();
+        }
+        ResponseEntity<T> built = response.get();
+        if (!built.getStatusCode().is2xxSuccessful()) {
+            return built;
+        }
+        return ResponseEntity.status(built.getStatusCode()).headers(built.getHeaders())
+                .cacheControl(cacheControl).body(built.getBody());
+    }
 }
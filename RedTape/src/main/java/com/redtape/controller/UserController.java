@@ -2,17 +2,29 @@ package com.redtape.controller;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import com.redtape.dto.CursorPage;
+import com.redtape.dto.UserCacheStats;
+import com.redtape.dto.UserSummaryDTO;
+import com.redtape.entity.Role;
 import com.redtape.entity.User;
+import com.redtape.service.AuthenticatedUser;
+import com.redtape.service.EmailService;
+import com.redtape.service.MailQueueFullException;
 import com.redtape.service.OtpService;
+import com.redtape.service.OtpStore;
+import com.redtape.service.PasswordHashingBusyException;
+import com.redtape.service.TokenService;
+import com.redtape.service.TooManyAttemptsException;
 import com.redtape.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 
 @RestController
@@ -21,9 +33,11 @@ import lombok.RequiredArgsConstructor;
 public class UserController {
     
     private final OtpService otpService;
-    private final JavaMailSender mailSender;
+    private final EmailService emailService;
     private final UserService userService;
-    private final PasswordEncoder passwordEncoder;
+    private final TokenService tokenService;
+
+    private static final int MAX_PAGE_SIZE = 100;
 
     // --- Get all users ---
     @GetMapping("/getAllUsers")
@@ -31,10 +45,34 @@ public class UserController {
         return userService.getAllUsers();
     }
 
+    // --- Admin listing: filtered, keyset-paginated, no password hashes ---
+    @GetMapping("/admin")
+    public ResponseEntity<CursorPage<UserSummaryDTO>> findUsers(@RequestParam(required = false) Role role,
+                                                                @RequestParam(required = false) String gender,
+                                                                @RequestParam(required = false) String emailPrefix,
+                                                                @RequestParam(required = false) String cursor,
+                                                                @RequestParam(defaultValue = "50") int size) {
+        if (size < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(userService.findUsers(role, gender, emailPrefix, cursor, Math.min(size, MAX_PAGE_SIZE)));
+        } catch (IllegalArgumentException e) {
+            // Malformed cursor
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // --- Create a new user ---
     @PostMapping("/createUser")
-    public User createUser(@RequestBody User user) {
-        return userService.createUser(user);
+    public ResponseEntity<?> createUser(@RequestBody User user, HttpServletRequest request) {
+        try {
+            return ResponseEntity.ok(userService.createUser(user, request.getRemoteAddr()));
+        } catch (TooManyAttemptsException e) {
+            return tooManyAttempts(e);
+        } catch (PasswordHashingBusyException e) {
+            return busy();
+        }
     }
 
     // --- Get user by ID ---
@@ -55,17 +93,16 @@ public class UserController {
 
     // --- Update existing user ---
     @PutMapping("/updateUser/{id}")
-    public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User updatedUser) {
-        return userService.getUserById(id).map(user -> {
-            user.setName(updatedUser.getName());
-            user.setEmail(updatedUser.getEmail());
-            if (updatedUser.getPassword() != null && !updatedUser.getPassword().isEmpty()) {
-                user.setPassword(passwordEncoder.encode(updatedUser.getPassword())); // encode password
-            }
-            user.setRole(updatedUser.getRole());
-            User savedUser = userService.createUser(user);
-            return ResponseEntity.ok(savedUser);
-        }).orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> updateUser(@PathVariable Long id, @RequestBody User updatedUser, HttpServletRequest request) {
+        try {
+            return userService.updateUser(id, updatedUser, request.getRemoteAddr())
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (TooManyAttemptsException e) {
+            return tooManyAttempts(e);
+        } catch (PasswordHashingBusyException e) {
+            return busy();
+        }
     }
 
     // --- Delete user by ID ---
@@ -79,24 +116,58 @@ public class UserController {
 
     // --- Change password for a specific user ---
     @PutMapping("/changePassword/{id}")
-    public ResponseEntity<String> changePassword(@PathVariable Long id, @RequestBody String newPassword) {
-        return userService.getUserById(id).map(user -> {
-            user.setPassword(passwordEncoder.encode(newPassword));
-            userService.saveUser(user);
-            return ResponseEntity.ok("Password updated successfully");
-        }).orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found"));
+    public ResponseEntity<String> changePassword(@PathVariable Long id, @RequestBody String newPassword, HttpServletRequest request) {
+        try {
+            if (userService.changePassword(id, newPassword, request.getRemoteAddr())) {
+                return ResponseEntity.ok("Password updated successfully");
+            }
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
+        } catch (TooManyAttemptsException e) {
+            return tooManyAttempts(e);
+        } catch (PasswordHashingBusyException e) {
+            return busy();
+        }
     }
 
     // --- User login endpoint ---
+    // The request thread is released while the password is checked on the hashing pool
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
-        return userService.getUserByEmail(loginRequest.getEmail()).map(user -> {
-            if (passwordEncoder.matches(loginRequest.getPassword(), user.getPassword())) {
-                return ResponseEntity.ok(new LoginResponse(user.getEmail(), user.getRole()));
-            } else {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials");
-            }
-        }).orElse(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials"));
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+        try {
+            return userService.authenticate(loginRequest.getEmail(), loginRequest.getPassword(), request.getRemoteAddr())
+                    .thenApply(user -> user
+                            .<ResponseEntity<?>>map(u -> ResponseEntity.ok(new LoginResponse(u.getEmail(), u.getRole(), tokenService.issue(u))))
+                            .orElse(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials")));
+        } catch (TooManyAttemptsException e) {
+            return CompletableFuture.completedFuture(tooManyAttempts(e));
+        } catch (PasswordHashingBusyException e) {
+            return CompletableFuture.completedFuture(busy());
+        }
+    }
+
+    // --- Current user, straight from the bearer token (no database lookup) ---
+    @GetMapping("/me")
+    public ResponseEntity<AuthenticatedUser> me(@AuthenticationPrincipal AuthenticatedUser me) {
+        if (me == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(me);
+    }
+
+    // --- Logout: revokes the presented token ---
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@AuthenticationPrincipal AuthenticatedUser me) {
+        if (me == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        tokenService.revoke(me);
+        return ResponseEntity.noContent().build();
+    }
+
+    // --- User cache hit rates ---
+    @GetMapping("/cache/stats")
+    public UserCacheStats getCacheStats() {
+        return userService.getCacheStats();
     }
 
     // --- Get username by email ---
@@ -117,13 +188,21 @@ public class UserController {
 
     // --- Forgot password using mobile verification ---
     @PostMapping("/forgotPassword")
-    public ResponseEntity<String> forgotPassword(@RequestBody ForgotPasswordRequest request) {
-        Optional<User> userOpt = userService.getUserByEmail(request.getEmail());
+    public ResponseEntity<String> forgotPassword(@RequestBody ForgotPasswordRequest request, HttpServletRequest httpRequest) {
+        // Not the cached copy: the mobile number may have changed on another node
+        Optional<User> userOpt = userService.loadUserByEmail(request.getEmail());
         if (userOpt.isPresent()) {
             User user = userOpt.get();
             if (user.getMobile() != null && user.getMobile().equals(request.getMobile())) {
-                user.setPassword(passwordEncoder.encode(request.getNewPassword()));
-                userService.saveUser(user);
+                try {
+                    if (!userService.changePassword(user.getId(), request.getNewPassword(), httpRequest.getRemoteAddr())) {
+                        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
+                    }
+                } catch (TooManyAttemptsException e) {
+                    return tooManyAttempts(e);
+                } catch (PasswordHashingBusyException e) {
+                    return busy();
+                }
                 return ResponseEntity.ok("Password updated successfully");
             } else {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Mobile number does not match");
@@ -141,20 +220,24 @@ public class UserController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
         }
         String otp = otpService.generateOtp(email);
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(email);
-        message.setSubject("OTP Verification - RedTape");
-        message.setText("Your OTP is: " + otp);
-        mailSender.send(message);
+        try {
+            // Queued; the SMTP conversation happens off the request thread
+            emailService.sendOtpEmail(email, otp);
+        } catch (MailQueueFullException e) {
+            otpService.clearOtp(email);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(e.getMessage());
+        }
         return ResponseEntity.ok("OTP sent successfully");
     }
 
     // --- Verify OTP ---
     @PostMapping("/verify-otp")
     public ResponseEntity<String> verifyOtp(@RequestParam String email, @RequestParam String otp) {
-        boolean valid = otpService.validateOtp(email, otp);
-        if (valid) {
+        OtpStore.Result result = otpService.checkOtp(email, otp);
+        if (result == OtpStore.Result.VALID) {
             return ResponseEntity.ok("OTP verified");
+        } else if (result == OtpStore.Result.LOCKED) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body("Too many attempts, request a new OTP");
         } else {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid OTP");
         }
@@ -162,16 +245,33 @@ public class UserController {
 
     // --- Reset password using OTP ---
     @PostMapping("/reset-password")
-    public ResponseEntity<String> resetPassword(@RequestBody ForgotPasswordRequest request) {
-        Optional<User> userOpt = userService.getUserByEmail(request.getEmail());
+    public ResponseEntity<String> resetPassword(@RequestBody ForgotPasswordRequest request, HttpServletRequest httpRequest) {
+        // Not the cached copy, which may still map a changed email to its old owner
+        Optional<User> userOpt = userService.loadUserByEmail(request.getEmail());
         if (userOpt.isPresent()) {
             User user = userOpt.get();
-            user.setPassword(passwordEncoder.encode(request.getNewPassword()));
-            userService.saveUser(user);
+            try {
+                if (!userService.changePassword(user.getId(), request.getNewPassword(), httpRequest.getRemoteAddr())) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
+                }
+            } catch (TooManyAttemptsException e) {
+                return tooManyAttempts(e);
+            } catch (PasswordHashingBusyException e) {
+                return busy();
+            }
             otpService.clearOtp(request.getEmail());
             return ResponseEntity.ok("Password reset successfully");
         } else {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
         }
     }
+
+    private static <T> ResponseEntity<T> tooManyAttempts(TooManyAttemptsException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds())).build();
+    }
+
+    private static <T> ResponseEntity<T> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
 }
@@ -4,6 +4,9 @@ import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -12,7 +15,14 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.redtape.dto.CursorPage;
+import com.redtape.dto.RatingSummaryDTO;
+import com.redtape.dto.ReviewRequest;
 import com.redtape.entity.UserReview;
+import com.redtape.service.DuplicateReviewException;
+import com.redtape.service.ProductRatingService;
+import com.redtape.service.ReviewIngestionService;
+import com.redtape.service.ReviewQueueFullException;
 import com.redtape.service.UserReviewService;
 
 import jakarta.validation.Valid;
@@ -23,7 +33,12 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class UserReviewController {
 
+    private static final int MAX_BULK_RATINGS = 200;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final UserReviewService reviewService;
+    private final ProductRatingService ratingService;
+    private final ReviewIngestionService ingestionService;
 
     @GetMapping("/product/{productId}")
     public List<UserReview> getReviewsForProduct(@PathVariable Long productId) {
@@ -31,8 +46,44 @@ public class UserReviewController {
     }
 
     @PostMapping("/addReview")
-    public UserReview addReview(@Valid @RequestBody UserReview review) {
-        return reviewService.addReview(review);
+    public ResponseEntity<UserReview> addReview(@Valid @RequestBody UserReview review) {
+        try {
+            return ResponseEntity.ok(reviewService.addReview(review));
+        } catch (DuplicateReviewException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(null);
+        }
+    }
+
+    // ✅ Queue a review by ids; it is moderated and saved in the background
+    @PostMapping
+    public ResponseEntity<Void> submitReview(@Valid @RequestBody ReviewRequest request) {
+        try {
+            ingestionService.submit(request);
+            return ResponseEntity.accepted().build();
+        } catch (DuplicateReviewException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (ReviewQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // ✅ Average, count and star histogram without loading the reviews
+    @GetMapping("/product/{productId}/rating")
+    public RatingSummaryDTO getRatingForProduct(@PathVariable Long productId) {
+        return ratingService.getRating(productId);
+    }
+
+    // ✅ Ratings for a whole page of products, e.g. /api/reviews/ratings?ids=1,2,3
+    @GetMapping("/ratings")
+    public ResponseEntity<List<RatingSummaryDTO>> getRatings(@RequestParam List<Long> ids) {
+        if (ids.size() > MAX_BULK_RATINGS) {
+            return ResponseEntity.badRequest().body(null);
+        }
+        return ResponseEntity.ok(ratingService.getRatings(ids));
     }
 
     @GetMapping("/product/{productId}/paged")
@@ -43,4 +94,19 @@ public class UserReviewController {
         Pageable pageable = PageRequest.of(page, size);
         return reviewService.getReviewsForProduct(productId, pageable);
     }
+
+    @GetMapping("/product/{productId}/scroll")
+    public ResponseEntity<CursorPage<UserReview>> scrollReviewsForProduct(
+            @PathVariable Long productId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        if (size < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(reviewService.getReviewsForProduct(productId, cursor, Math.min(size, MAX_PAGE_SIZE)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(null);
+        }
+    }
 }
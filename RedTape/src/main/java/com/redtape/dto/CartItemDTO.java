@@ -1,10 +1,20 @@
 package com.redtape.dto;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
 public class CartItemDTO {
+    // Lines are identified by product.modelNo; a line still in the write-behind store has no row id yet
     private ProductDTO product;
     private int quantity;
     private double price;
+
+    // Used by the JPQL constructor projection in CartRepository
+    public CartItemDTO(Long modelNo, String name, double unitPrice, String img1, int quantity, double price) {
+        this.product = new ProductDTO(modelNo, name, unitPrice, img1);
+        this.quantity = quantity;
+        this.price = price;
+    }
 }
@@ -0,0 +1,19 @@
+package com.redtape.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ImportReport {
+    private long totalRows;
+    private long imported;
+    private long failed;
+    private List<ImportRowError> errors = new ArrayList<>();
+    private boolean errorsTruncated; // true when more rows failed than are listed
+    // The upload could not be read to the end; rows from abortedAtRow on were not processed
+    private boolean aborted;
+    private Long abortedAtRow;
+    private String abortReason;
+}
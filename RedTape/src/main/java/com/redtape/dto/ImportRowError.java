@@ -0,0 +1,13 @@
+package com.redtape.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRowError {
+    private long row;       // 1-based data row in the upload
+    private String message;
+}
@@ -0,0 +1,22 @@
+package com.redtape.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderIntakeStatus {
+
+    public enum State {
+        QUEUED,    // accepted and logged, not in the database yet
+        PERSISTED, // saved; orderId is set
+        FAILED     // could not be saved; error says why and the stock was released
+    }
+
+    private String reference;
+    private State status;
+    private Long orderId;
+    private String error;
+}
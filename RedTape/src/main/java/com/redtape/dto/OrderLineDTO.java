@@ -0,0 +1,19 @@
+package com.redtape.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderLineDTO {
+    @JsonIgnore
+    private Long orderId; // only used to group lines under their order
+    private Long modelNo;
+    private String name;
+    private String img1;
+    private int quantity;
+    private double price;
+}
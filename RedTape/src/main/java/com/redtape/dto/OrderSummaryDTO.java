@@ -0,0 +1,29 @@
+package com.redtape.dto;
+
+import com.redtape.entity.OrderStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class OrderSummaryDTO {
+    private Long id;
+    private String reference;
+    private LocalDateTime orderDate;
+    private OrderStatus status;
+    private double totalAmount;
+    private List<OrderLineDTO> items = new ArrayList<>();
+
+    // Used by the JPQL constructor projection in OrderRepository; lines are filled in afterwards
+    public OrderSummaryDTO(Long id, String reference, LocalDateTime orderDate, OrderStatus status, double totalAmount) {
+        this.id = id;
+        this.reference = reference;
+        this.orderDate = orderDate;
+        this.status = status;
+        this.totalAmount = totalAmount;
+    }
+}
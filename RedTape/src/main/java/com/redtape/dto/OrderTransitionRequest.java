@@ -0,0 +1,12 @@
+package com.redtape.dto;
+
+import com.redtape.entity.OrderStatus;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class OrderTransitionRequest {
+    private List<Long> orderIds;
+    private OrderStatus status;
+}
@@ -0,0 +1,23 @@
+package com.redtape.dto;
+
+import com.redtape.entity.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderTransitionResult {
+
+    public enum Outcome {
+        UPDATED,     // moved to the requested status
+        UNCHANGED,   // already in the requested status
+        NOT_ALLOWED, // the current status cannot move to the requested one
+        NOT_FOUND
+    }
+
+    private Long orderId;
+    private Outcome outcome;
+    private OrderStatus previousStatus; // null when not found
+}
@@ -1,10 +1,15 @@
 package com.redtape.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class ProductDTO {
     private Long modelNo;
     private String name;
     private double price;
+    private String img1; // thumbnail; the other images are only needed on the product page
 }
@@ -0,0 +1,15 @@
+package com.redtape.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingSummaryDTO {
+    private Long modelNo;
+    private long reviewCount;
+    private double average;  // 0 when there are no reviews
+    private long[] stars;    // stars[0] = number of 1-star reviews ... stars[4] = 5-star
+}
@@ -0,0 +1,22 @@
+package com.redtape.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class ReviewRequest {
+    @NotNull
+    private Long userId;
+
+    @NotNull
+    private Long modelNo;
+
+    @Min(1) @Max(5)
+    private int rating;
+
+    @Size(max = 1000)
+    private String comment;
+}
@@ -0,0 +1,18 @@
+package com.redtape.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserCacheStats {
+    private long hits;
+    private long negativeHits;   // lookups answered "no such user" from the cache
+    private long misses;
+    private long evictions;      // index entries dropped for size, not for expiry or invalidation
+    private long invalidations;
+    private int size;
+    private double hitRate;      // (hits + negativeHits) / all lookups; 0 before the first one
+}
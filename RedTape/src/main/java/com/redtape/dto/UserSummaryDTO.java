@@ -0,0 +1,18 @@
+package com.redtape.dto;
+
+import com.redtape.entity.Role;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Admin listing row; deliberately leaves out the password hash and mobile number
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSummaryDTO {
+    private Long id;
+    private String name;
+    private String email;
+    private String gender;
+    private Role role;
+}
@@ -15,9 +15,9 @@ public class Cart {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    // The owner of the cart
+    // The owner of the cart; unique so concurrent first requests cannot create two carts
     @OneToOne
-    @JoinColumn(name = "user_id", nullable = false)
+    @JoinColumn(name = "user_id", nullable = false, unique = true)
     private User user;
 
     // List of items in the cart
@@ -28,4 +28,8 @@ public class Cart {
     // Optional: Total amount (can be computed or stored)
     @Column(nullable = false)
     private double totalAmount;
+
+    // Optimistic lock: a save based on a stale copy fails instead of overwriting newer items
+    @Version
+    private long version;
 }
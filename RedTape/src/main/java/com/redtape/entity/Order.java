@@ -2,6 +2,7 @@ package com.redtape.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -12,14 +13,22 @@ import java.util.List;
 public class Order {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq")
+    // Pooled ids so orders can be inserted as JDBC batches; aligned past existing rows at startup
+    @SequenceGenerator(name = "order_seq", sequenceName = "order_seq", allocationSize = 50)
     private Long id;
 
+    // Client-facing handle issued by the order intake before the row exists
+    @Column(unique = true, length = 36)
+    private String reference;
+
     @ManyToOne
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    // Batched so paths without an entity graph load items for many orders per query
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 50)
     private List<OrderItem> items;
 
     @Column(nullable = false)
@@ -34,7 +43,10 @@ public class Order {
 
     @PrePersist
     protected void onCreate() {
-        this.orderDate = LocalDateTime.now();
+        // Orders from the intake queue keep the time they were accepted
+        if (this.orderDate == null) {
+            this.orderDate = LocalDateTime.now();
+        }
         this.status = OrderStatus.PENDING;
     }
 }
@@ -3,5 +3,14 @@ public enum OrderStatus {
     PENDING,
     SHIPPED,
     DELIVERED,
-    CANCELLED
+    CANCELLED;
+
+    // Allowed moves: PENDING -> SHIPPED or CANCELLED, SHIPPED -> DELIVERED
+    public boolean canMoveTo(OrderStatus next) {
+        return switch (this) {
+            case PENDING -> next == SHIPPED || next == CANCELLED;
+            case SHIPPED -> next == DELIVERED;
+            case DELIVERED, CANCELLED -> false;
+        };
+    }
 }
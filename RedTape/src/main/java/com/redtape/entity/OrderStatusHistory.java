@@ -0,0 +1,33 @@
+package com.redtape.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Append-only: one row per status change, never updated
+@Entity
+@Data
+@Table(indexes = @Index(name = "idx_status_history_order", columnList = "orderId, changedAt"))
+public class OrderStatusHistory {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_status_history_seq")
+    @SequenceGenerator(name = "order_status_history_seq", sequenceName = "order_status_history_seq", allocationSize = 50)
+    private Long id;
+
+    // Plain id rather than a relation, so bulk transitions never load orders
+    @Column(nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderStatus fromStatus;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderStatus toStatus;
+
+    @Column(nullable = false)
+    private LocalDateTime changedAt;
+}
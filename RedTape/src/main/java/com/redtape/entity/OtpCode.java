@@ -0,0 +1,25 @@
+package com.redtape.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Backing table for the shared OTP store (redtape.otp.store=jdbc)
+@Entity
+@Data
+@Table(indexes = @Index(name = "idx_otp_expires", columnList = "expiresAt"))
+public class OtpCode {
+
+    @Id
+    @Column(length = 255)
+    private String otpKey;
+
+    @Column(nullable = false, length = 16)
+    private String code;
+
+    // Epoch millis
+    @Column(nullable = false)
+    private long expiresAt;
+
+    @Column(nullable = false)
+    private int attempts;
+}
@@ -8,7 +8,9 @@ import lombok.Data;
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    // Pooled ids: one round trip to product_seq per 50 inserts, which keeps JDBC batching possible
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
     private long modelNo; // unique model number instead of ID
 
     @Column(nullable = false, length = 50)
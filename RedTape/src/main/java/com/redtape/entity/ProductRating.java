@@ -0,0 +1,32 @@
+package com.redtape.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Running rating totals for one product, kept in step with UserReview inserts
+@Entity
+@Data
+public class ProductRating {
+
+    // Same value as Product.modelNo; not generated
+    @Id
+    private Long modelNo;
+
+    @Column(nullable = false)
+    private long reviewCount;
+
+    @Column(nullable = false)
+    private long ratingSum;
+
+    // Histogram: number of 1-star ... 5-star reviews
+    @Column(nullable = false)
+    private long star1;
+    @Column(nullable = false)
+    private long star2;
+    @Column(nullable = false)
+    private long star3;
+    @Column(nullable = false)
+    private long star4;
+    @Column(nullable = false)
+    private long star5;
+}
@@ -7,10 +7,17 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.Data;
 
 @Entity
 @Data
+// Serve the admin listing's role/gender filters in id order (email prefixes use the unique email index)
+@Table(indexes = {
+		@Index(name = "idx_user_role_id", columnList = "role, id"),
+		@Index(name = "idx_user_gender_id", columnList = "gender, id")
+})
 public class User 
 {
 	@Id
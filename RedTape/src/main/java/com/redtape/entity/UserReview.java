@@ -9,10 +9,15 @@ import java.time.LocalDateTime;
 
 @Entity
 @Data
+@Table(indexes = @Index(name = "idx_review_product_date", columnList = "product_model_no, reviewDate, id"),
+       // One review per user per product
+       uniqueConstraints = @UniqueConstraint(name = "uk_review_user_product", columnNames = {"user_id", "product_model_no"}))
 public class UserReview {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_review_seq")
+    // Pooled ids so queued reviews can be inserted as JDBC batches
+    @SequenceGenerator(name = "user_review_seq", sequenceName = "user_review_seq", allocationSize = 50)
     private Long id;
 
     // Reviewer
@@ -39,6 +44,9 @@ public class UserReview {
 
     @PrePersist
     public void onCreate() {
-        this.reviewDate = LocalDateTime.now();
+        // Queued reviews keep the time they were submitted
+        if (this.reviewDate == null) {
+            this.reviewDate = LocalDateTime.now();
+        }
     }
 }
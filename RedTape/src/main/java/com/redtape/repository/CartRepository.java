@@ -1,13 +1,20 @@
 package com.redtape.repository;
 
+import com.redtape.dto.CartItemDTO;
 import com.redtape.entity.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
 	 @Query("SELECT c FROM Cart c WHERE c.user.email = :email")
 	    Optional<Cart> findByUserEmail(@Param("email") String email);
+
+	// Read model for the cart page: one query, no managed entities
+	@Query("SELECT new com.redtape.dto.CartItemDTO(p.modelNo, p.name, p.price, p.img1, i.quantity, i.price) " +
+			"FROM CartItem i JOIN i.product p JOIN i.cart c JOIN c.user u WHERE u.email = :email ORDER BY i.id")
+	List<CartItemDTO> findItemViewsByUserEmail(@Param("email") String email);
 }
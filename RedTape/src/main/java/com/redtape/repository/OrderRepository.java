@@ -1,10 +1,68 @@
 package com.redtape.repository;
 
+import com.redtape.dto.OrderLineDTO;
+import com.redtape.dto.OrderSummaryDTO;
 import com.redtape.entity.Order;
+import com.redtape.entity.OrderStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
+    // Orders come with their user, items and products in one query instead of 1 + N + N*M
+    @EntityGraph(attributePaths = {"user", "items", "items.product"})
     List<Order> findByUserId(Long userId);
+
+    @EntityGraph(attributePaths = {"user", "items", "items.product"})
+    @Query("SELECT o FROM Order o ORDER BY o.id")
+    List<Order> findAllWithItems();
+
+    // Paging happens on ids alone; joining the items collection into a paged query would page in memory
+    @Query(value = "SELECT o.id FROM Order o", countQuery = "SELECT COUNT(o) FROM Order o")
+    Page<Long> findIds(Pageable pageable);
+
+    @Query(value = "SELECT o.id FROM Order o WHERE o.user.id = :userId",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.user.id = :userId")
+    Page<Long> findIdsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "items", "items.product"})
+    @Query("SELECT o FROM Order o WHERE o.id IN :ids")
+    List<Order> findWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Read model for list views: no entities, no full product rows
+    @Query(value = "SELECT new com.redtape.dto.OrderSummaryDTO(o.id, o.reference, o.orderDate, o.status, o.totalAmount) " +
+                   "FROM Order o WHERE o.user.id = :userId",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.user.id = :userId")
+    Page<OrderSummaryDTO> findSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT new com.redtape.dto.OrderLineDTO(i.order.id, p.modelNo, p.name, p.img1, i.quantity, i.price) " +
+           "FROM OrderItem i JOIN i.product p WHERE i.order.id IN :orderIds ORDER BY i.id")
+    List<OrderLineDTO> findLinesByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    Optional<Order> findByReference(String reference);
+
+    // Number of order lines per product, as [modelNo, count] rows
+    @Query("SELECT i.product.modelNo, COUNT(i) FROM OrderItem i GROUP BY i.product.modelNo")
+    List<Object[]> countOrderItemsByProduct();
+
+    // Lines of every order in the given status as [orderId, orderDate, modelNo, quantity] rows
+    @Query("SELECT o.id, o.orderDate, i.product.modelNo, i.quantity FROM OrderItem i JOIN i.order o " +
+           "WHERE o.status = :status ORDER BY o.id")
+    List<Object[]> findLinesByStatus(@Param("status") OrderStatus status);
+
+    // Current status of each order, row-locked until the transaction ends; rows are [id, status]
+    @Query(value = "SELECT id, status FROM orders WHERE id IN (:ids) FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockStatuses(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :status WHERE o.id IN :ids")
+    int setStatus(@Param("ids") Collection<Long> ids, @Param("status") OrderStatus status);
 }
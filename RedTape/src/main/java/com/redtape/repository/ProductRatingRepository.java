@@ -0,0 +1,30 @@
+package com.redtape.repository;
+
+import com.redtape.entity.ProductRating;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ProductRatingRepository extends JpaRepository<ProductRating, Long> {
+
+    // Adds reviews to the product's totals in a single statement, creating the row on first use
+    @Modifying
+    @Query(value = "INSERT INTO product_rating (model_no, review_count, rating_sum, star1, star2, star3, star4, star5) " +
+                   "VALUES (:modelNo, :count, :sum, :star1, :star2, :star3, :star4, :star5) " +
+                   "ON DUPLICATE KEY UPDATE review_count = review_count + :count, rating_sum = rating_sum + :sum, " +
+                   "star1 = star1 + :star1, star2 = star2 + :star2, star3 = star3 + :star3, " +
+                   "star4 = star4 + :star4, star5 = star5 + :star5",
+           nativeQuery = true)
+    int addRatings(@Param("modelNo") long modelNo, @Param("count") long count, @Param("sum") long sum,
+                   @Param("star1") long star1, @Param("star2") long star2, @Param("star3") long star3,
+                   @Param("star4") long star4, @Param("star5") long star5);
+
+    // Recomputes every product's totals from the reviews table
+    @Modifying
+    @Query(value = "REPLACE INTO product_rating (model_no, review_count, rating_sum, star1, star2, star3, star4, star5) " +
+                   "SELECT product_model_no, COUNT(*), SUM(rating), SUM(rating = 1), SUM(rating = 2), " +
+                   "SUM(rating = 3), SUM(rating = 4), SUM(rating = 5) FROM user_review GROUP BY product_model_no",
+           nativeQuery = true)
+    int rebuildAll();
+}
@@ -3,6 +3,10 @@ package com.redtape.repository;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.redtape.entity.User;
 
@@ -12,4 +16,16 @@ public interface UserRepository extends JpaRepository<User, Long>{
 
 	User findByEmailAndPassword(String email, String password);
 
+	// Swaps the hash only if it is still the one that was verified
+	@Transactional
+	@Modifying
+	@Query("UPDATE User u SET u.password = :newHash WHERE u.id = :id AND u.password = :oldHash")
+	int replacePassword(@Param("id") long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+
+	// Touches only the password, so other columns changed meanwhile are kept
+	@Transactional
+	@Modifying
+	@Query("UPDATE User u SET u.password = :newHash WHERE u.id = :id")
+	int setPassword(@Param("id") long id, @Param("newHash") String newHash);
+
 }
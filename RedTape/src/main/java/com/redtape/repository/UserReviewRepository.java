@@ -1,8 +1,12 @@
 package com.redtape.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import com.redtape.entity.UserReview;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -13,4 +17,23 @@ public interface UserReviewRepository extends JpaRepository<UserReview, Long> {
     List<UserReview> findByProduct_ModelNo(Long modelNo);
 
     Page<UserReview> findByProduct_ModelNo(Long modelNo, Pageable pageable);
+
+    boolean existsByUser_IdAndProduct_ModelNo(long userId, Long modelNo);
+
+    // Every (userId, modelNo) that has a review; feeds the dedup index
+    @Query("SELECT r.user.id, r.product.modelNo FROM UserReview r")
+    List<Object[]> findAllUserProductPairs();
+
+    // Keyset pagination, newest first; List return types skip the count query
+    @Query("SELECT r FROM UserReview r WHERE r.product.modelNo = :modelNo " +
+           "ORDER BY r.reviewDate DESC, r.id DESC")
+    List<UserReview> findFirstByProductNewestFirst(@Param("modelNo") Long modelNo, Pageable pageable);
+
+    @Query("SELECT r FROM UserReview r WHERE r.product.modelNo = :modelNo AND " +
+           "(r.reviewDate < :reviewDate OR (r.reviewDate = :reviewDate AND r.id < :id)) " +
+           "ORDER BY r.reviewDate DESC, r.id DESC")
+    List<UserReview> findByProductNewestFirstAfter(@Param("modelNo") Long modelNo,
+                                                   @Param("reviewDate") LocalDateTime reviewDate,
+                                                   @Param("id") Long id,
+                                                   Pageable pageable);
 }
@@ -0,0 +1,104 @@
+package com.redtape.service;
+
+import com.redtape.entity.User;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Working copy of one user's cart held by {@link CartStore}.
+ * All mutable fields are guarded by the store's stripe lock for {@link #email}.
+ *
+ * Amounts are kept in exact cents. Each line caches its subtotal and the cart
+ * keeps a running total, so a line change is applied as a delta instead of
+ * re-summing every line.
+ */
+class ActiveCart {
+
+    final String email;
+    final Long cartId;
+    final User user;
+
+    // Keyed by product modelNo, in the order lines were added
+    private final Map<Long, Line> lines = new LinkedHashMap<>();
+    private long totalCents;
+
+    boolean dirty;
+    long version; // Cart.version as of the last load or write
+    long lastAccess = System.currentTimeMillis();
+
+    ActiveCart(String email, Long cartId, User user) {
+        this.email = email;
+        this.cartId = cartId;
+        this.user = user;
+    }
+
+    Line line(long modelNo) {
+        return lines.get(modelNo);
+    }
+
+    Iterable<Line> lines() {
+        return lines.values();
+    }
+
+    int lineCount() {
+        return lines.size();
+    }
+
+    long totalCents() {
+        return totalCents;
+    }
+
+    // Quantity 0 removes the line
+    void setLine(long modelNo, int quantity, long unitPriceCents) {
+        Line line = lines.get(modelNo);
+        if (line != null) {
+            totalCents -= line.subtotalCents;
+        }
+        if (quantity <= 0) {
+            lines.remove(modelNo);
+            return;
+        }
+        if (line == null) {
+            line = new Line(modelNo);
+            lines.put(modelNo, line);
+        }
+        line.set(quantity, unitPriceCents);
+        totalCents += line.subtotalCents;
+    }
+
+    void clearLines() {
+        lines.clear();
+        totalCents = 0;
+    }
+
+    static final class Line {
+
+        final long modelNo;
+        private int quantity;
+        private long unitPriceCents;
+        private long subtotalCents;
+
+        private Line(long modelNo) {
+            this.modelNo = modelNo;
+        }
+
+        private void set(int quantity, long unitPriceCents) {
+            this.quantity = quantity;
+            this.unitPriceCents = unitPriceCents;
+            this.subtotalCents = Math.multiplyExact(unitPriceCents, quantity);
+        }
+
+        int quantity() {
+            return quantity;
+        }
+
+        long unitPriceCents() {
+            return unitPriceCents;
+        }
+
+        long subtotalCents() {
+            return subtotalCents;
+        }
+    }
+}
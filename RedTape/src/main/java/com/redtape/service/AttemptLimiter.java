@@ -0,0 +1,72 @@
+package com.redtape.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Fixed-window attempt counter per key (client IP, account, ...).
+ *
+ * A key may record {@code limit} attempts per window; after that it is
+ * blocked until the window ends. Windows are replaced lazily on the next
+ * attempt, and {@link #purgeExpired()} drops the ones nobody touched again, so
+ * memory follows the number of keys active in the last window.
+ */
+public class AttemptLimiter {
+
+    private final int limit;
+    private final long windowMs;
+    private final LongSupplier clock;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public AttemptLimiter(int limit, long windowMs) {
+        this(limit, windowMs, System::currentTimeMillis);
+    }
+
+    AttemptLimiter(int limit, long windowMs, LongSupplier clock) {
+        this.limit = limit;
+        this.windowMs = windowMs;
+        this.clock = clock;
+    }
+
+    // Counts an attempt; false if the key had already used up its window
+    public boolean tryAcquire(String key) {
+        long now = clock.getAsLong();
+        Window window = windows.compute(key, (k, w) -> {
+            if (w == null || w.start + windowMs <= now) {
+                return new Window(now, 1);
+            }
+            return new Window(w.start, w.count + 1);
+        });
+        return window.count <= limit;
+    }
+
+    // Counts an attempt without refusing it
+    public void record(String key) {
+        tryAcquire(key);
+    }
+
+    public boolean isBlocked(String key) {
+        Window window = windows.get(key);
+        return window != null && window.count >= limit && window.start + windowMs > clock.getAsLong();
+    }
+
+    // Seconds until the key's window ends, at least 1
+    public long retryAfterSeconds(String key) {
+        Window window = windows.get(key);
+        long remaining = window == null ? 0 : window.start + windowMs - clock.getAsLong();
+        return Math.max(1, (remaining + 999) / 1000);
+    }
+
+    public void reset(String key) {
+        windows.remove(key);
+    }
+
+    public void purgeExpired() {
+        long now = clock.getAsLong();
+        windows.values().removeIf(w -> w.start + windowMs <= now);
+    }
+
+    private record Window(long start, int count) {
+    }
+}
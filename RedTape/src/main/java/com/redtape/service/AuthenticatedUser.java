@@ -0,0 +1,13 @@
+package com.redtape.service;
+
+import com.redtape.entity.Role;
+
+/**
+ * The caller as named by a verified session token; built without a
+ * database lookup.
+ *
+ * @param tokenId   unique id of the token, used to revoke it
+ * @param expiresAt epoch millis after which the token is no longer accepted
+ */
+public record AuthenticatedUser(long id, String email, Role role, String tokenId, long expiresAt) {
+}
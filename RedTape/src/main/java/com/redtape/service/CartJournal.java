@@ -0,0 +1,33 @@
+package com.redtape.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Local append-only log of cart mutations that have not reached the database yet.
+ *
+ * Records are absolute ("line X now has quantity N", "cart cleared"), so
+ * replaying a segment twice gives the same result. The flusher rotates to a
+ * fresh segment before writing dirty carts and deletes the older segments once
+ * that write has committed. Whatever is left on disk at startup is replayed by
+ * {@link CartStore}.
+ */
+@Component
+public class CartJournal extends SegmentedLog {
+
+    public CartJournal(@Value("${redtape.cart.journal-dir:./data/cart-journal}") String directory,
+                       @Value("${redtape.cart.journal-fsync:false}") boolean fsync) throws IOException {
+        super(Paths.get(directory), "cart-", fsync);
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        super.close();
+    }
+}
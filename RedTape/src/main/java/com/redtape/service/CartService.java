@@ -1,110 +1,163 @@
 package com.redtape.service;
 
+import com.redtape.dto.CartDTO;
+import com.redtape.dto.CartItemDTO;
+import com.redtape.dto.ProductDTO;
 import com.redtape.entity.Cart;
 import com.redtape.entity.CartItem;
 import com.redtape.entity.Product;
-import com.redtape.entity.User;
 import com.redtape.repository.CartRepository;
-import com.redtape.repository.ProductRepository;
-import com.redtape.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
+/**
+ * Cart operations. Mutations are applied to the in-memory {@link CartStore}
+ * and reach the database asynchronously; responses are built from the store
+ * and the product catalog snapshot, so a cart click costs no database round
+ * trip once the cart is loaded.
+ */
 @Service
 @RequiredArgsConstructor
 public class CartService {
 
     private final CartRepository cartRepository;
-    private final UserRepository userRepository;
-    private final ProductRepository productRepository;
+    private final CartStore cartStore;
+    private final ProductCatalog productCatalog;
 
     public Cart getOrCreateCartByEmail(String email) {
-        return cartRepository.findByUserEmail(email)
-                .orElseGet(() -> {
-                    User user = userRepository.getUserByEmail(email)
-                            .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
-                    Cart newCart = new Cart();
-                    newCart.setUser(user);
-                    newCart.setTotalAmount(0.0);
-                    return cartRepository.save(newCart);
-                });
+        return cartStore.withCart(email, this::toCart);
+    }
+
+    /**
+     * Compact read model of the cart. A cart that is in memory is served from
+     * the store (it may be ahead of the tables); otherwise the tables are
+     * current and one projection query fills the DTOs.
+     */
+    public CartDTO getCartViewByEmail(String email) {
+        CartDTO live = cartStore.ifLoaded(email, this::toDto);
+        if (live != null) {
+            return live;
+        }
+        List<CartItemDTO> items = cartRepository.findItemViewsByUserEmail(email);
+        if (items.isEmpty()) {
+            // No cart yet, or an empty one; load it so it gets created if missing
+            return cartStore.withCart(email, this::toDto);
+        }
+        long totalCents = 0;
+        for (CartItemDTO item : items) {
+            totalCents += Money.toCents(item.getPrice());
+        }
+        return toDto(email, items, totalCents);
+    }
+
+    public List<CartItemDTO> getItemViewsByEmail(String email) {
+        return getCartViewByEmail(email).getItems();
     }
 
     public Cart saveOrUpdateCart(Cart cart) {
+        // Writes straight to the tables, so get the store out of the way first
+        if (cart.getUser() != null && cart.getUser().getEmail() != null) {
+            cartStore.evict(cart.getUser().getEmail());
+        }
         return cartRepository.save(cart);
     }
 
     public Cart addItemToCartByEmail(String email, Long modelNo, int quantity) {
         if (quantity <= 0) throw new IllegalArgumentException("Quantity must be greater than 0");
 
-        Cart cart = getOrCreateCartByEmail(email);
-        Product product = productRepository.findById(modelNo)
+        Product product = productCatalog.findByModelNo(modelNo)
                 .orElseThrow(() -> new RuntimeException("Product not found with modelNo: " + modelNo));
 
-        Optional<CartItem> existingItemOpt = cart.getItems().stream()
-                .filter(item -> modelNo.equals(item.getProduct().getModelNo()))
-                .findFirst();
-
-        if (existingItemOpt.isPresent()) {
-            CartItem existingItem = existingItemOpt.get();
-            existingItem.setQuantity(existingItem.getQuantity() + quantity);
-            existingItem.setPrice(product.getPrice() * existingItem.getQuantity());
-        } else {
-            CartItem newItem = new CartItem();
-            newItem.setCart(cart);
-            newItem.setProduct(product);
-            newItem.setQuantity(quantity);
-            newItem.setPrice(product.getPrice() * quantity);
-            cart.getItems().add(newItem);
-        }
-
-        recalculateTotal(cart);
-        return cartRepository.save(cart);
+        return cartStore.withCart(email, cart -> {
+            ActiveCart.Line existing = cart.line(modelNo);
+            int newQuantity = existing == null ? quantity : existing.quantity() + quantity;
+            cartStore.setLine(cart, modelNo, newQuantity, Money.toCents(product.getPrice()));
+            return toCart(cart);
+        });
     }
 
     public Cart updateItemQuantityByEmail(String email, Long modelNo, int quantity) {
         if (quantity <= 0) throw new IllegalArgumentException("Quantity must be greater than 0");
 
-        Cart cart = getOrCreateCartByEmail(email);
-
-        cart.getItems().forEach(item -> {
-            if (modelNo.equals(item.getProduct().getModelNo())) {
-                item.setQuantity(quantity);
-                item.setPrice(item.getProduct().getPrice() * quantity);
+        return cartStore.withCart(email, cart -> {
+            ActiveCart.Line existing = cart.line(modelNo);
+            if (existing != null) {
+                long unitPriceCents = productCatalog.findByModelNo(modelNo)
+                        .map(product -> Money.toCents(product.getPrice()))
+                        .orElse(existing.unitPriceCents());
+                cartStore.setLine(cart, modelNo, quantity, unitPriceCents);
             }
+            return toCart(cart);
         });
-
-        recalculateTotal(cart);
-        return cartRepository.save(cart);
     }
 
     public Cart removeItemFromCartByEmail(String email, Long modelNo) {
-        Cart cart = getOrCreateCartByEmail(email);
-
-        cart.getItems().removeIf(item -> modelNo.equals(item.getProduct().getModelNo()));
+        return cartStore.withCart(email, cart -> {
+            if (cart.line(modelNo) != null) {
+                cartStore.setLine(cart, modelNo, 0, 0);
+            }
+            return toCart(cart);
+        });
+    }
 
-        recalculateTotal(cart);
-        return cartRepository.save(cart);
+    public void clearCartByEmail(String email) {
+        cartStore.withCart(email, cart -> {
+            cartStore.clear(cart);
+            return null;
+        });
     }
 
-    public List<CartItem> getAllItemsByEmail(String email) {
-        return getOrCreateCartByEmail(email).getItems();
+    // Callers hold the cart's stripe lock
+    private CartDTO toDto(ActiveCart active) {
+        List<CartItemDTO> items = new ArrayList<>(active.lineCount());
+        for (ActiveCart.Line line : active.lines()) {
+            CartItemDTO item = new CartItemDTO();
+            item.setProduct(productCatalog.findByModelNo(line.modelNo)
+                    .map(product -> new ProductDTO(product.getModelNo(), product.getName(), product.getPrice(), product.getImg1()))
+                    .orElseGet(() -> {
+                        ProductDTO placeholder = new ProductDTO();
+                        placeholder.setModelNo(line.modelNo);
+                        return placeholder;
+                    }));
+            item.setQuantity(line.quantity());
+            item.setPrice(Money.toAmount(line.subtotalCents()));
+            items.add(item);
+        }
+        return toDto(active.email, items, active.totalCents());
     }
 
-    public void clearCartByEmail(String email) {
-        Cart cart = getOrCreateCartByEmail(email);
-        cart.getItems().clear();
-        cart.setTotalAmount(0.0);
-        cartRepository.save(cart);
+    private static CartDTO toDto(String email, List<CartItemDTO> items, long totalCents) {
+        CartDTO cart = new CartDTO();
+        cart.setUserEmail(email);
+        cart.setItems(items);
+        cart.setTotalAmount(Money.toAmount(totalCents));
+        return cart;
     }
 
-    private void recalculateTotal(Cart cart) {
-        double total = cart.getItems().stream()
-                .mapToDouble(CartItem::getPrice)
-                .sum();
-        cart.setTotalAmount(total);
+    // Callers hold the cart's stripe lock
+    private Cart toCart(ActiveCart active) {
+        Cart cart = new Cart();
+        cart.setId(active.cartId);
+        cart.setUser(active.user);
+        cart.setVersion(active.version);
+        List<CartItem> items = new ArrayList<>(active.lineCount());
+        for (ActiveCart.Line line : active.lines()) {
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(productCatalog.findByModelNo(line.modelNo).orElseGet(() -> {
+                Product placeholder = new Product();
+                placeholder.setModelNo(line.modelNo);
+                return placeholder;
+            }));
+            item.setQuantity(line.quantity());
+            item.setPrice(Money.toAmount(line.subtotalCents()));
+            items.add(item);
+        }
+        cart.setItems(items);
+        cart.setTotalAmount(Money.toAmount(active.totalCents()));
+        return cart;
     }
 }
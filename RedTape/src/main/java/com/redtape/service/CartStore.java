@@ -0,0 +1,366 @@
+package com.redtape.service;
+
+import com.redtape.entity.Cart;
+import com.redtape.entity.CartItem;
+import com.redtape.entity.User;
+import com.redtape.repository.CartRepository;
+import com.redtape.repository.ProductRepository;
+import com.redtape.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Write-behind store for active carts.
+ *
+ * Carts are loaded into memory on first touch and mutated there. Each
+ * mutation is appended to the {@link CartJournal} before it is acknowledged,
+ * and a scheduled flusher writes the latest state of every changed cart to
+ * the Cart/CartItem tables in one transaction. Several clicks on the same cart
+ * between two flushes therefore cost a single write. Carts that stay idle and
+ * clean are dropped from memory.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CartStore {
+
+    static final String SET = "SET";
+    static final String CLEAR = "CLEAR";
+
+    private final CartRepository cartRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final CartJournal journal;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<String, ActiveCart> carts = new ConcurrentHashMap<>();
+
+    // Serializes everything that touches one user's cart, including its first load
+    private final StripedLocks locks = new StripedLocks(256);
+
+    @Value("${redtape.cart.idle-eviction-ms:1800000}")
+    private long idleEvictionMs;
+
+    @Value("${redtape.cart.max-write-attempts:3}")
+    private int maxWriteAttempts;
+
+    // Set once leftover journal segments are back in memory; no flush may delete them before that
+    private volatile boolean recovered;
+
+    /**
+     * Runs the action with the user's cart locked, loading or creating the
+     * cart first if it is not in memory.
+     */
+    public <T> T withCart(String email, Function<ActiveCart, T> action) {
+        ReentrantLock lock = locks.forKey(email);
+        lock.lock();
+        try {
+            ActiveCart cart = carts.get(email);
+            if (cart == null) {
+                // Under the stripe lock, so concurrent first requests cannot both create a cart
+                cart = load(email);
+                carts.put(email, cart);
+            }
+            cart.lastAccess = System.currentTimeMillis();
+            return action.apply(cart);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the action with the user's cart locked if the cart is already in
+     * memory, without loading it; returns null otherwise.
+     */
+    public <T> T ifLoaded(String email, Function<ActiveCart, T> action) {
+        ReentrantLock lock = locks.forKey(email);
+        lock.lock();
+        try {
+            ActiveCart cart = carts.get(email);
+            return cart == null ? null : action.apply(cart);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Callers hold the cart's stripe lock; quantity 0 removes the line
+    void setLine(ActiveCart cart, long modelNo, int quantity, long unitPriceCents) {
+        journal.append(String.join("\t", SET, cart.email, Long.toString(modelNo),
+                Integer.toString(quantity), Long.toString(unitPriceCents)));
+        cart.setLine(modelNo, quantity, unitPriceCents);
+        cart.dirty = true;
+    }
+
+    // Callers hold the cart's stripe lock
+    void clear(ActiveCart cart) {
+        journal.append(String.join("\t", CLEAR, cart.email));
+        cart.clearLines();
+        cart.dirty = true;
+    }
+
+    /**
+     * Writes the cart now (if it has pending changes) and drops it from memory,
+     * so a caller can safely modify the database rows directly.
+     *
+     * Synchronized with {@link #flush()}: a flush writes its snapshots outside
+     * the stripe locks, so an eviction running in the middle of one could write
+     * newer state that the flush then overwrites with its older snapshot.
+     * Callers must not hold a stripe lock (the flusher takes the monitor first).
+     */
+    public synchronized void evict(String email) {
+        ReentrantLock lock = locks.forKey(email);
+        lock.lock();
+        try {
+            ActiveCart cart = carts.get(email);
+            if (cart != null && cart.dirty) {
+                recordVersion(cart, writeWithRetry(snapshot(cart)));
+            }
+            carts.remove(email);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ===================== Flushing =====================
+
+    // Synchronized so one flush cannot delete segments another is still writing
+    @Scheduled(fixedDelayString = "${redtape.cart.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (!recovered) {
+            // Rotating now would seal and then delete segments that were never replayed
+            return;
+        }
+        // Everything journaled so far is in a sealed segment once this returns
+        long sealed = journal.rotate();
+        long now = System.currentTimeMillis();
+
+        List<ActiveCart> batch = new ArrayList<>();
+        List<CartSnapshot> snapshots = new ArrayList<>();
+        for (Iterator<ActiveCart> it = carts.values().iterator(); it.hasNext(); ) {
+            ActiveCart cart = it.next();
+            ReentrantLock lock = locks.forKey(cart.email);
+            lock.lock();
+            try {
+                if (cart.dirty) {
+                    snapshots.add(snapshot(cart));
+                    batch.add(cart);
+                    cart.dirty = false;
+                } else if (now - cart.lastAccess > idleEvictionMs) {
+                    it.remove();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        if (snapshots.isEmpty() || writeAll(snapshots, batch)) {
+            journal.deleteThrough(sealed);
+        }
+    }
+
+    // Returns true when every snapshot reached the database
+    private boolean writeAll(List<CartSnapshot> snapshots, List<ActiveCart> batch) {
+        try {
+            List<Cart> written = transactionTemplate.execute(status -> snapshots.stream().map(this::write).toList());
+            for (int i = 0; i < written.size(); i++) {
+                recordVersion(batch.get(i), written.get(i));
+            }
+            return true;
+        } catch (RuntimeException batchFailure) {
+            log.warn("Cart batch flush failed, retrying carts one by one", batchFailure);
+        }
+
+        // Isolate the cart that broke the batch so the others still get written
+        boolean allWritten = true;
+        for (int i = 0; i < snapshots.size(); i++) {
+            CartSnapshot snapshot = snapshots.get(i);
+            try {
+                recordVersion(batch.get(i), writeWithRetry(snapshot));
+            } catch (RuntimeException e) {
+                log.error("Could not flush cart {} for {}; will retry", snapshot.cartId, snapshot.email, e);
+                ReentrantLock lock = locks.forKey(snapshot.email);
+                lock.lock();
+                try {
+                    batch.get(i).dirty = true;
+                } finally {
+                    lock.unlock();
+                }
+                allWritten = false;
+            }
+        }
+        return allWritten;
+    }
+
+    /**
+     * Writes one cart in its own transaction. A version conflict means the row
+     * changed underneath us (another node, or a direct save); since the snapshot
+     * holds absolute state, re-reading the row and applying it again is safe.
+     */
+    private Cart writeWithRetry(CartSnapshot snapshot) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> write(snapshot));
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxWriteAttempts) {
+                    throw e;
+                }
+                log.debug("Version conflict writing cart {}, attempt {}", snapshot.cartId, attempt);
+            }
+        }
+    }
+
+    // Runs inside a transaction; returns the written cart, or null if it no longer exists
+    private Cart write(CartSnapshot snapshot) {
+        Cart cart = cartRepository.findById(snapshot.cartId).orElse(null);
+        if (cart == null) {
+            // Deleted behind our back; nothing left to write to
+            return null;
+        }
+        if (cart.getItems() == null) {
+            cart.setItems(new ArrayList<>());
+        }
+
+        Map<Long, CartItem> existing = new HashMap<>();
+        for (CartItem item : cart.getItems()) {
+            existing.put(item.getProduct().getModelNo(), item);
+        }
+        cart.getItems().removeIf(item -> !snapshot.lines.containsKey(item.getProduct().getModelNo()));
+
+        for (SnapshotLine line : snapshot.lines.values()) {
+            CartItem item = existing.get(line.modelNo);
+            if (item == null) {
+                item = new CartItem();
+                item.setCart(cart);
+                item.setProduct(productRepository.getReferenceById(line.modelNo));
+                cart.getItems().add(item);
+            }
+            item.setQuantity(line.quantity);
+            item.setPrice(Money.toAmount(line.subtotalCents));
+        }
+        cart.setTotalAmount(Money.toAmount(snapshot.totalCents));
+        return cartRepository.save(cart);
+    }
+
+    // Keeps the in-memory version in step with the row so views carry a current version
+    private void recordVersion(ActiveCart cart, Cart written) {
+        if (written == null) {
+            return;
+        }
+        ReentrantLock lock = locks.forKey(cart.email);
+        lock.lock();
+        try {
+            cart.version = written.getVersion();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        // flush() skips this when recovery never finished, leaving the journal for the next start
+        flush();
+    }
+
+    // ===================== Loading and recovery =====================
+
+    // Callers hold the cart's stripe lock
+    private ActiveCart load(String email) {
+        try {
+            return transactionTemplate.execute(status -> toActive(email, cartRepository.findByUserEmail(email).orElseGet(() -> {
+                User user = userRepository.getUserByEmail(email)
+                        .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
+                Cart newCart = new Cart();
+                newCart.setUser(user);
+                newCart.setItems(new ArrayList<>());
+                newCart.setTotalAmount(0.0);
+                return cartRepository.save(newCart);
+            })));
+        } catch (DataIntegrityViolationException e) {
+            // Another node created this user's cart first (cart.user_id is unique); use theirs
+            return transactionTemplate.execute(status -> toActive(email,
+                    cartRepository.findByUserEmail(email).orElseThrow(() -> e)));
+        }
+    }
+
+    private static ActiveCart toActive(String email, Cart cart) {
+        ActiveCart active = new ActiveCart(email, cart.getId(), cart.getUser());
+        active.version = cart.getVersion();
+        for (CartItem item : cart.getItems()) {
+            long modelNo = item.getProduct().getModelNo();
+            long unitPriceCents = item.getQuantity() == 0
+                    ? Money.toCents(item.getProduct().getPrice())
+                    : Math.round((double) Money.toCents(item.getPrice()) / item.getQuantity());
+            active.setLine(modelNo, item.getQuantity(), unitPriceCents);
+        }
+        return active;
+    }
+
+    /**
+     * Re-applies journal segments left behind by a crash and writes the
+     * result. Runs while the bean is initialized, so it finishes before the
+     * scheduler starts flushing and before the web server takes traffic.
+     */
+    @PostConstruct
+    public void recover() {
+        int[] replayed = {0};
+        journal.replay(record -> {
+            String[] fields = record.split("\t");
+            String email = fields[1];
+            try {
+                withCart(email, cart -> {
+                    if (CLEAR.equals(fields[0])) {
+                        cart.clearLines();
+                    } else {
+                        // Older segments carried the unit price as a decimal amount
+                        long unitPriceCents = fields[4].contains(".")
+                                ? Money.toCents(Double.parseDouble(fields[4]))
+                                : Long.parseLong(fields[4]);
+                        cart.setLine(Long.parseLong(fields[2]), Integer.parseInt(fields[3]), unitPriceCents);
+                    }
+                    cart.dirty = true;
+                    return null;
+                });
+                replayed[0]++;
+            } catch (RuntimeException e) {
+                log.error("Skipping unreplayable cart journal record: {}", record, e);
+            }
+        });
+        if (replayed[0] > 0) {
+            log.info("Replayed {} cart journal records", replayed[0]);
+        }
+        recovered = true;
+        flush();
+    }
+
+    private static CartSnapshot snapshot(ActiveCart cart) {
+        Map<Long, SnapshotLine> lines = new LinkedHashMap<>();
+        for (ActiveCart.Line line : cart.lines()) {
+            lines.put(line.modelNo, new SnapshotLine(line.modelNo, line.quantity(), line.subtotalCents()));
+        }
+        return new CartSnapshot(cart.email, cart.cartId, lines, cart.totalCents());
+    }
+
+    private record CartSnapshot(String email, Long cartId, Map<Long, SnapshotLine> lines, long totalCents) {
+    }
+
+    private record SnapshotLine(long modelNo, int quantity, long subtotalCents) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.redtape.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redtape.entity.Category;
+import com.redtape.entity.Product;
+import com.redtape.entity.SubCategory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Ready-to-send JSON for the category / subcategory listing pages.
+ *
+ * There are only a few such slices (every category, every subcategory and
+ * every pair of them), so each one's product list is serialized once, gzipped
+ * once, and the bytes are written straight to later responses with no
+ * per-request Jackson work or allocation beyond the response itself. Every
+ * product write empties the cache. An entry is also tied to the slice's
+ * {@link CatalogVersions} version it was built for, so a build that raced a
+ * write is never served after the write lands.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogResponseCache {
+
+    private final ProductFilterIndex productFilterIndex;
+    private final CatalogVersions catalogVersions;
+    private final ObjectMapper objectMapper;
+
+    private final Map<Slice, Payload> payloads = new ConcurrentHashMap<>();
+
+    // Products in the slice; null means "any" for either argument, but not both
+    public Payload get(Category category, SubCategory subCategory) {
+        Slice slice = new Slice(category, subCategory);
+        // Read the version before the products: a write in between leaves a stale version, never stale bytes
+        CatalogVersions.Version version = versionOf(slice);
+        Payload payload = payloads.get(slice);
+        if (payload != null && payload.version.equals(version)) {
+            return payload;
+        }
+        // compute() makes concurrent misses on one slice wait for a single build
+        return payloads.compute(slice, (key, current) -> current != null && current.version.equals(version)
+                ? current
+                : build(version, productFilterIndex.search(category, subCategory, null, null, null, null)));
+    }
+
+    private CatalogVersions.Version versionOf(Slice slice) {
+        if (slice.category == null) {
+            return catalogVersions.ofSubCategory(slice.subCategory);
+        }
+        if (slice.subCategory == null) {
+            return catalogVersions.ofCategory(slice.category);
+        }
+        return catalogVersions.ofSlice(slice.category, slice.subCategory);
+    }
+
+    private Payload build(CatalogVersions.Version version, List<Product> products) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(products);
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+                gzip.write(json);
+            }
+            return new Payload(version, products.isEmpty(), json, buffer.toByteArray());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize product listing", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Last, once the filter index and CatalogVersions both have the change; a build keyed by the new version sees new data
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        payloads.clear();
+    }
+
+    /**
+     * @param empty true when the slice has no products
+     * @param json  the serialized product list; shared, never modify
+     * @param gzip  the same bytes, gzip-compressed; shared, never modify
+     */
+    public record Payload(CatalogVersions.Version version, boolean empty, byte[] json, byte[] gzip) {
+    }
+
+    private record Slice(Category category, SubCategory subCategory) {
+    }
+}
@@ -0,0 +1,117 @@
+package com.redtape.service;
+
+import com.redtape.entity.Category;
+import com.redtape.entity.Product;
+import com.redtape.entity.SubCategory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions of catalog resources for HTTP validators (ETags).
+ *
+ * Every {@link ProductChangedEvent} takes a new stamp and assigns it to the
+ * product, to every category, subcategory and category/subcategory slice the
+ * product was in before or after the change, and to the catalog as a whole.
+ * Anything not touched since startup has the startup version. Looking up a
+ * version is a map read, so a conditional GET can be answered with 304 before
+ * any data is loaded. The ETags carry a per-process epoch, so a restart (or a
+ * different node) never confirms a tag it did not issue.
+ *
+ * There is deliberately no Last-Modified: HTTP dates have whole-second
+ * resolution, so two writes within a second would share a date and a client
+ * revalidating with If-Modified-Since would be told its stale copy is current.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogVersions {
+
+    private final ProductCatalog productCatalog;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong stamps = new AtomicLong();
+    private final Version initial = newVersion(0);
+
+    private volatile Version catalog = initial;
+    private final Map<Long, Version> products = new ConcurrentHashMap<>();
+    private final Map<Category, Version> categories = new ConcurrentHashMap<>();
+    private final Map<SubCategory, Version> subCategories = new ConcurrentHashMap<>();
+    private final Map<Slice, Version> slices = new ConcurrentHashMap<>();
+
+    // Product as it was before an event, between the two listeners below
+    private final Map<ProductChangedEvent, Optional<Product>> previous = new ConcurrentHashMap<>();
+
+    // Any listing that can include any product (all products, price/color/quantity filters)
+    public Version ofCatalog() {
+        return catalog;
+    }
+
+    public Version ofProduct(long modelNo) {
+        return products.getOrDefault(modelNo, initial);
+    }
+
+    public Version ofCategory(Category category) {
+        return categories.getOrDefault(category, initial);
+    }
+
+    public Version ofSubCategory(SubCategory subCategory) {
+        return subCategories.getOrDefault(subCategory, initial);
+    }
+
+    public Version ofSlice(Category category, SubCategory subCategory) {
+        return slices.getOrDefault(new Slice(category, subCategory), initial);
+    }
+
+    // Runs before ProductCatalog applies the change, while it still holds the product as it was
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void capturePrevious(ProductChangedEvent event) {
+        previous.put(event, productCatalog.findByModelNo(event.getModelNo()));
+    }
+
+    // After ProductCatalog (+ 1) and ProductFilterIndex (+ 2), so a request never pairs a new tag with an old body
+    @Order(Ordered.HIGHEST_PRECEDENCE + 3)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Version next = newVersion(stamps.incrementAndGet());
+        Optional<Product> before = previous.remove(event);
+        if (before != null) {
+            before.ifPresent(product -> assign(product, next));
+        }
+        if (!event.isDeleted()) {
+            assign(event.getProduct(), next);
+        }
+        products.put(event.getModelNo(), next);
+        catalog = next;
+    }
+
+    private void assign(Product product, Version version) {
+        if (product.getCategory() != null) {
+            categories.put(product.getCategory(), version);
+        }
+        if (product.getSubCategory() != null) {
+            subCategories.put(product.getSubCategory(), version);
+        }
+        slices.put(new Slice(product.getCategory(), product.getSubCategory()), version);
+    }
+
+    private Version newVersion(long stamp) {
+        return new Version("W/\"" + epoch + "-" + stamp + "\"");
+    }
+
+    /**
+     * @param etag weak entity tag, quoted
+     */
+    public record Version(String etag) {
+    }
+
+    private record Slice(Category category, SubCategory subCategory) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.redtape.service;
+
+/**
+ * Thrown when a user reviews a product they have already reviewed.
+ */
+public class DuplicateReviewException extends RuntimeException {
+
+    public DuplicateReviewException(long userId, long modelNo) {
+        super("User " + userId + " has already reviewed product " + modelNo);
+    }
+}
@@ -1,25 +1,29 @@
 package com.redtape.service;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import lombok.RequiredArgsConstructor;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
-import lombok.Data;
-
+/**
+ * Composes the application's emails and hands them to the {@link MailDispatcher};
+ * none of these methods wait for the SMTP server.
+ */
 @Service
-@Data
+@RequiredArgsConstructor
 public class EmailService {
 
-    @Autowired
-    private final JavaMailSender mailSender;
+    private final MailDispatcher mailDispatcher;
 
     // Method to send OTP email
     public void sendOtpEmail(String to, String otp) {
+        sendNotification(to, "OTP Verification - RedTape", "Your OTP is: " + otp);
+    }
+
+    public void sendNotification(String to, String subject, String text) {
         SimpleMailMessage message = new SimpleMailMessage();
         message.setTo(to);
-        message.setSubject("OTP Verification - RedTape");
-        message.setText("Your OTP is: " + otp);
-        mailSender.send(message);
+        message.setSubject(subject);
+        message.setText(text);
+        mailDispatcher.dispatch(message);
     }
 }
@@ -0,0 +1,163 @@
+package com.redtape.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Node-local {@link OtpStore}.
+ *
+ * Keys are spread over independently locked shards, so requests for different
+ * emails rarely contend. Each shard is a bounded map in insertion order: when
+ * it is full the oldest code is dropped, and because every code gets the same
+ * TTL the oldest codes are also the first to expire, so the periodic sweep
+ * stops at the first live entry. Expired codes found on read are dropped too.
+ */
+@Component
+@ConditionalOnProperty(name = "redtape.otp.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOtpStore implements OtpStore {
+
+    private static final int SHARDS = 16;
+
+    private final Shard[] shards = new Shard[SHARDS];
+    private final int maxAttempts;
+    private final LongSupplier clock;
+
+    public InMemoryOtpStore(@Value("${redtape.otp.max-entries:100000}") int maxEntries,
+                            @Value("${redtape.otp.max-attempts:5}") int maxAttempts) {
+        this(maxEntries, maxAttempts, System::currentTimeMillis);
+    }
+
+    // Lets tests drive time
+    InMemoryOtpStore(int maxEntries, int maxAttempts, LongSupplier clock) {
+        int perShard = Math.max(1, maxEntries / SHARDS);
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard(perShard);
+        }
+        this.maxAttempts = maxAttempts;
+        this.clock = clock;
+    }
+
+    @Override
+    public void put(String key, String code, long ttlMillis) {
+        Shard shard = shard(key);
+        shard.lock.lock();
+        try {
+            // Remove first so the new entry goes to the back of the insertion order
+            shard.entries.remove(key);
+            shard.entries.put(key, new Entry(code.getBytes(StandardCharsets.UTF_8), clock.getAsLong() + ttlMillis));
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override
+    public Result check(String key, String code) {
+        Shard shard = shard(key);
+        shard.lock.lock();
+        try {
+            Entry entry = shard.entries.get(key);
+            if (entry == null) {
+                return Result.EXPIRED;
+            }
+            if (entry.expiresAt <= clock.getAsLong()) {
+                shard.entries.remove(key);
+                return Result.EXPIRED;
+            }
+            if (entry.attempts >= maxAttempts) {
+                return Result.LOCKED;
+            }
+            if (MessageDigest.isEqual(entry.code, code.getBytes(StandardCharsets.UTF_8))) {
+                return Result.VALID;
+            }
+            entry.attempts++;
+            return entry.attempts >= maxAttempts ? Result.LOCKED : Result.INVALID;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        Shard shard = shard(key);
+        shard.lock.lock();
+        try {
+            shard.entries.remove(key);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${redtape.otp.sweep-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = clock.getAsLong();
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                for (Iterator<Entry> it = shard.entries.values().iterator(); it.hasNext(); ) {
+                    if (it.next().expiresAt > now) {
+                        break;
+                    }
+                    it.remove();
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                size += shard.entries.size();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private Shard shard(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return shards[h & (SHARDS - 1)];
+    }
+
+    private static final class Shard {
+
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<String, Entry> entries;
+
+        Shard(int capacity) {
+            entries = new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+    }
+
+    private static final class Entry {
+
+        final byte[] code;
+        final long expiresAt;
+        int attempts;
+
+        Entry(byte[] code, long expiresAt) {
+            this.code = code;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.redtape.service;
+
+import lombok.Getter;
+
+/**
+ * Thrown when an order asks for more units of a product than are available.
+ */
+@Getter
+public class InsufficientStockException extends RuntimeException {
+
+    private final long modelNo;
+    private final int requested;
+    private final int available;
+
+    public InsufficientStockException(long modelNo, int requested, int available) {
+        super("Not enough stock for product " + modelNo + ": requested " + requested + ", available " + available);
+        this.modelNo = modelNo;
+        this.requested = requested;
+        this.available = available;
+    }
+}
@@ -0,0 +1,21 @@
+package com.redtape.service;
+
+import com.redtape.entity.OrderStatus;
+import lombok.Getter;
+
+/**
+ * Thrown when an order is asked to move to a status its current status does
+ * not allow (see {@link OrderStatus#canMoveTo}).
+ */
+@Getter
+public class InvalidStatusTransitionException extends RuntimeException {
+
+    private final OrderStatus from;
+    private final OrderStatus to;
+
+    public InvalidStatusTransitionException(long orderId, OrderStatus from, OrderStatus to) {
+        super("Order " + orderId + " cannot move from " + from + " to " + to);
+        this.from = from;
+        this.to = to;
+    }
+}
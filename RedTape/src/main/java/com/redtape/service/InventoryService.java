@@ -0,0 +1,355 @@
+package com.redtape.service;
+
+import com.redtape.entity.OrderStatus;
+import com.redtape.entity.Product;
+import com.redtape.repository.OrderRepository;
+import com.redtape.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stock reservations for order placement.
+ *
+ * Each product touched by an order gets an in-memory counter of units still
+ * available, seeded from the {@link ProductCatalog}. Reserving is a
+ * compare-and-set on that counter, so concurrent orders for a hot product never
+ * queue on the product's row lock and can never take more than is there.
+ * Reserved units are written to the {@code product} table in periodic batches.
+ *
+ * A reservation stays held while its order is PENDING. Shipping the order
+ * confirms it; cancelling it gives the units back. There is no payment state,
+ * so nothing expires by default: only when
+ * {@code redtape.inventory.reservation-ttl-ms} is set does
+ * {@link OrderStatusService} cancel orders still PENDING past it. Held
+ * reservations are kept in memory and rebuilt from the PENDING orders' items
+ * at startup, so a restart neither strands their stock nor stops them from
+ * expiring.
+ * The counters assume a single application node owns order placement.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InventoryService {
+
+    private final ProductCatalog productCatalog;
+    private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<Long, Stock> stocks = new ConcurrentHashMap<>();
+    private final Map<Long, Held> held = new ConcurrentHashMap<>();
+
+    // Reconcile passes are numbered per run; the run id keeps numbers from different runs apart
+    private final String reconcileRun = UUID.randomUUID().toString();
+    private final AtomicLong passesStarted = new AtomicLong();
+    private volatile ReconcilePass reconciled;
+
+    // 0 or less: held reservations never expire
+    @Value("${redtape.inventory.reservation-ttl-ms:0}")
+    private long reservationTtlMs;
+
+    // ===================== Reservations =====================
+
+    /**
+     * Takes the requested units (modelNo -> quantity) out of stock, all or
+     * nothing. The result must be handed to {@link #hold} once the order has an
+     * id, or to {@link #release(Reservation)} if the order is not saved.
+     */
+    public Reservation reserve(Map<Long, Integer> quantities) {
+        // Sorted so the rollback below always undoes a prefix
+        TreeMap<Long, Integer> lines = new TreeMap<>(quantities);
+        List<Map.Entry<Long, Integer>> taken = new ArrayList<>(lines.size());
+        try {
+            for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+                if (line.getValue() <= 0) {
+                    throw new IllegalArgumentException("Quantity must be greater than 0");
+                }
+                stock(line.getKey()).take(line.getKey(), line.getValue());
+                taken.add(line);
+            }
+        } catch (RuntimeException e) {
+            for (Map.Entry<Long, Integer> line : taken) {
+                giveBack(line.getKey(), line.getValue());
+            }
+            throw e;
+        }
+        return new Reservation(Collections.unmodifiableMap(lines));
+    }
+
+    /**
+     * Wraps units an earlier run already took and wrote to the product table,
+     * for an order that is only being saved now. Nothing is taken from stock;
+     * the result goes to {@link #hold} like any other reservation.
+     */
+    public Reservation adopt(Map<Long, Integer> quantities) {
+        return new Reservation(Collections.unmodifiableMap(new TreeMap<>(quantities)));
+    }
+
+    // Keeps the reservation until the order is confirmed, cancelled or expires
+    public void hold(long orderId, Reservation reservation) {
+        held.put(orderId, new Held(reservation, expiresAt(System.currentTimeMillis())));
+    }
+
+    public void release(Reservation reservation) {
+        reservation.quantities.forEach(this::giveBack);
+    }
+
+    // Returns the order's units to stock; false if nothing was held for it
+    public boolean release(long orderId) {
+        Held h = held.remove(orderId);
+        if (h == null) {
+            return false;
+        }
+        release(h.reservation);
+        return true;
+    }
+
+    // The order has been paid for; its units are sold for good
+    public void confirm(long orderId) {
+        held.remove(orderId);
+    }
+
+    private Stock stock(long modelNo) {
+        return stocks.computeIfAbsent(modelNo, id -> new Stock(productCatalog.findByModelNo(id)
+                .map(Product::getQuantity)
+                .orElseThrow(() -> new IllegalArgumentException("Product not found with modelNo: " + id))));
+    }
+
+    private void giveBack(long modelNo, int quantity) {
+        Stock stock = stocks.get(modelNo);
+        if (stock == null) {
+            // Held since before a restart; seed the counter from the (already decremented) row first
+            if (productCatalog.findByModelNo(modelNo).isEmpty()) {
+                return;
+            }
+            stock = stock(modelNo);
+        }
+        stock.available.addAndGet(quantity);
+        stock.unwritten.addAndGet(-quantity);
+    }
+
+    /**
+     * Rebuilds the held reservations of orders that were still PENDING when the
+     * previous process stopped. Their units were already written to the product
+     * table, so only the hold is restored; with a TTL set, it expires
+     * {@code reservationTtlMs} after the order was placed.
+     */
+    @PostConstruct
+    public void restoreHeld() {
+        Map<Long, Map<Long, Integer>> lines = new HashMap<>();
+        Map<Long, LocalDateTime> placedAt = new HashMap<>();
+        for (Object[] row : orderRepository.findLinesByStatus(OrderStatus.PENDING)) {
+            Long orderId = (Long) row[0];
+            placedAt.put(orderId, (LocalDateTime) row[1]);
+            lines.computeIfAbsent(orderId, id -> new TreeMap<>()).merge((Long) row[2], (Integer) row[3], Integer::sum);
+        }
+        lines.forEach((orderId, quantities) -> {
+            long expiresAt = expiresAt(placedAt.get(orderId).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            held.putIfAbsent(orderId, new Held(new Reservation(Collections.unmodifiableMap(quantities)), expiresAt));
+        });
+        if (!lines.isEmpty()) {
+            log.info("Restored stock reservations for {} pending orders", lines.size());
+        }
+    }
+
+    // ===================== Expiry =====================
+
+    // Orders whose reservation is past its TTL; cancelling them releases the stock. Empty when no TTL is set
+    public List<Long> expiredOrders() {
+        if (reservationTtlMs <= 0) {
+            return List.of();
+        }
+        long now = System.currentTimeMillis();
+        List<Long> expired = new ArrayList<>();
+        for (Map.Entry<Long, Held> entry : held.entrySet()) {
+            if (entry.getValue().expiresAt <= now) {
+                expired.add(entry.getKey());
+            }
+        }
+        return expired;
+    }
+
+    private long expiresAt(long heldSince) {
+        return reservationTtlMs > 0 ? heldSince + reservationTtlMs : Long.MAX_VALUE;
+    }
+
+    // ===================== Reconciliation =====================
+
+    /**
+     * Writes the units reserved (or returned) since the last run to the product
+     * table as one JDBC batch of relative updates, then publishes the new rows
+     * so the catalog and its indexes see current quantities.
+     */
+    @Scheduled(fixedDelayString = "${redtape.inventory.reconcile-interval-ms:1000}")
+    public synchronized void reconcile() {
+        ReconcilePass pass = new ReconcilePass(reconcileRun, passesStarted.incrementAndGet());
+        List<Long> modelNos = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, Stock> entry : stocks.entrySet()) {
+            int delta = entry.getValue().unwritten.getAndSet(0);
+            if (delta != 0) {
+                modelNos.add(entry.getKey());
+                batch.add(new Object[]{delta, entry.getKey()});
+            }
+        }
+        if (batch.isEmpty()) {
+            reconciled = pass;
+            return;
+        }
+
+        boolean[] applied = {false};
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate("UPDATE product SET quantity = quantity - ? WHERE model_no = ?", batch);
+                // Before commit, so the events below come back to onProductChanged as a zero delta
+                adjustWritten(batch, -1);
+                applied[0] = true;
+                for (Product product : productRepository.findAllById(modelNos)) {
+                    eventPublisher.publishEvent(ProductChangedEvent.saved(product));
+                }
+            });
+            reconciled = pass;
+        } catch (RuntimeException e) {
+            log.warn("Stock reconciliation failed; will retry", e);
+            if (applied[0]) {
+                adjustWritten(batch, 1);
+            }
+            for (Object[] row : batch) {
+                Stock stock = stocks.get((Long) row[1]);
+                if (stock != null) {
+                    stock.unwritten.addAndGet((Integer) row[0]);
+                }
+            }
+        }
+    }
+
+    /**
+     * The reconcile pass that will write a stock change made before this call.
+     * That pass has not started yet, so anything that learns it has finished
+     * learns it after this call returned.
+     */
+    public ReconcilePass nextReconcile() {
+        return new ReconcilePass(reconcileRun, passesStarted.get() + 1);
+    }
+
+    // The latest pass to finish: every change made before it started is in the product table. Null until one has
+    public ReconcilePass lastReconciled() {
+        return reconciled;
+    }
+
+    private void adjustWritten(List<Object[]> batch, int sign) {
+        for (Object[] row : batch) {
+            Stock stock = stocks.get((Long) row[1]);
+            if (stock != null) {
+                synchronized (stock) {
+                    stock.written += sign * (Integer) row[0];
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void reconcileOnShutdown() {
+        reconcile();
+    }
+
+    /**
+     * Folds quantity changes made elsewhere (an admin restock, for example) into
+     * the counter. Our own reconciliation has already moved {@code written}, so
+     * its events come out as a zero delta.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isDeleted()) {
+            stocks.remove(event.getModelNo());
+            return;
+        }
+        Stock stock = stocks.get(event.getModelNo());
+        if (stock == null) {
+            return;
+        }
+        synchronized (stock) {
+            int delta = event.getProduct().getQuantity() - stock.written;
+            stock.written = event.getProduct().getQuantity();
+            stock.available.addAndGet(delta);
+        }
+    }
+
+    // ===================== State =====================
+
+    /** Units taken out of stock for one order, by modelNo. */
+    public static final class Reservation {
+
+        private final Map<Long, Integer> quantities;
+
+        private Reservation(Map<Long, Integer> quantities) {
+            this.quantities = quantities;
+        }
+
+        public Map<Long, Integer> getQuantities() {
+            return quantities;
+        }
+    }
+
+    private record Held(Reservation reservation, long expiresAt) {
+    }
+
+    /**
+     * One run of {@link #reconcile}; passes of the same run are numbered in
+     * the order they start.
+     */
+    public record ReconcilePass(String run, long pass) {
+    }
+
+    private static final class Stock {
+
+        // Units that can still be reserved
+        final AtomicInteger available;
+        // Net units reserved since the last reconciliation (negative after releases)
+        final AtomicInteger unwritten = new AtomicInteger();
+        // product.quantity as last written or seen; guarded by this
+        int written;
+
+        Stock(int quantity) {
+            available = new AtomicInteger(quantity);
+            written = quantity;
+        }
+
+        void take(long modelNo, int quantity) {
+            for (;;) {
+                int current = available.get();
+                if (current < quantity) {
+                    throw new InsufficientStockException(modelNo, quantity, current);
+                }
+                if (available.compareAndSet(current, current - quantity)) {
+                    unwritten.addAndGet(quantity);
+                    return;
+                }
+            }
+        }
+    }
+}
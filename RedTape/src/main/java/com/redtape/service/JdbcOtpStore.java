@@ -0,0 +1,75 @@
+package com.redtape.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * {@link OtpStore} in the otp_code table, so every application node sees the
+ * same codes and attempt counts. A check locks the row for its transaction,
+ * which keeps concurrent guesses from sharing one attempt.
+ */
+@Component
+@ConditionalOnProperty(name = "redtape.otp.store", havingValue = "jdbc")
+public class JdbcOtpStore implements OtpStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+
+    public JdbcOtpStore(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                        @Value("${redtape.otp.max-attempts:5}") int maxAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Override
+    public void put(String key, String code, long ttlMillis) {
+        jdbcTemplate.update("REPLACE INTO otp_code (otp_key, code, expires_at, attempts) VALUES (?, ?, ?, 0)",
+                key, code, System.currentTimeMillis() + ttlMillis);
+    }
+
+    @Override
+    public Result check(String key, String code) {
+        return transactionTemplate.execute(status -> {
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT code, expires_at, attempts FROM otp_code WHERE otp_key = ? FOR UPDATE",
+                    (rs, i) -> new Object[]{rs.getString(1), rs.getLong(2), rs.getInt(3)}, key);
+            if (rows.isEmpty()) {
+                return Result.EXPIRED;
+            }
+            Object[] row = rows.get(0);
+            if ((Long) row[1] <= System.currentTimeMillis()) {
+                jdbcTemplate.update("DELETE FROM otp_code WHERE otp_key = ?", key);
+                return Result.EXPIRED;
+            }
+            int attempts = (Integer) row[2];
+            if (attempts >= maxAttempts) {
+                return Result.LOCKED;
+            }
+            if (MessageDigest.isEqual(((String) row[0]).getBytes(StandardCharsets.UTF_8), code.getBytes(StandardCharsets.UTF_8))) {
+                return Result.VALID;
+            }
+            jdbcTemplate.update("UPDATE otp_code SET attempts = attempts + 1 WHERE otp_key = ?", key);
+            return attempts + 1 >= maxAttempts ? Result.LOCKED : Result.INVALID;
+        });
+    }
+
+    @Override
+    public void remove(String key) {
+        jdbcTemplate.update("DELETE FROM otp_code WHERE otp_key = ?", key);
+    }
+
+    @Scheduled(fixedDelayString = "${redtape.otp.sweep-interval-ms:60000}")
+    public void purgeExpired() {
+        jdbcTemplate.update("DELETE FROM otp_code WHERE expires_at <= ?", System.currentTimeMillis());
+    }
+}
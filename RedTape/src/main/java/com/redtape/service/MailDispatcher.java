@@ -0,0 +1,180 @@
+package com.redtape.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbound mail, sent off the request thread.
+ *
+ * {@link #dispatch} only queues the message. A small pool of workers drains
+ * the bounded queue and hands each batch to {@link JavaMailSender#send(SimpleMailMessage...)},
+ * which delivers the whole batch over one SMTP connection instead of one
+ * connect/handshake/login per message. Messages the server did not take are
+ * retried with exponential backoff up to {@code redtape.mail.max-attempts};
+ * malformed messages are dropped. Point {@code spring.mail.host}/{@code port}
+ * at a local SMTP stand-in to exercise it without a real mailbox. Messages
+ * still queued at shutdown are sent first; a crash loses them.
+ */
+@Slf4j
+@Component
+public class MailDispatcher {
+
+    private final JavaMailSender mailSender;
+    private final BlockingQueue<Outgoing> queue;
+    private final int workerCount;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    private final List<Thread> workers = new ArrayList<>();
+    private final ScheduledExecutorService retryTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "mail-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running;
+
+    public MailDispatcher(JavaMailSender mailSender,
+                          @Value("${redtape.mail.queue-capacity:2000}") int queueCapacity,
+                          @Value("${redtape.mail.workers:2}") int workerCount,
+                          @Value("${redtape.mail.batch-size:20}") int batchSize,
+                          @Value("${redtape.mail.max-attempts:5}") int maxAttempts,
+                          @Value("${redtape.mail.backoff-ms:1000}") long backoffMs) {
+        this.mailSender = mailSender;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+    }
+
+    /**
+     * Queues a message for delivery and returns immediately.
+     *
+     * @throws MailQueueFullException if the queue is full
+     */
+    public void dispatch(SimpleMailMessage message) {
+        if (!queue.offer(new Outgoing(message, 1))) {
+            throw new MailQueueFullException();
+        }
+    }
+
+    // ===================== Workers =====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::drain, "mail-dispatch-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Outgoing first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Outgoing> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Mail dispatch failed", e);
+            }
+        }
+    }
+
+    private void send(List<Outgoing> batch) {
+        SimpleMailMessage[] messages = new SimpleMailMessage[batch.size()];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = batch.get(i).message;
+        }
+        try {
+            mailSender.send(messages);
+        } catch (MailParseException | MailPreparationException e) {
+            // Sending the same message again will not help
+            log.error("Dropped {} unsendable mail message(s)", messages.length, e);
+        } catch (MailSendException e) {
+            Map<Object, Exception> failed = e.getFailedMessages();
+            for (Outgoing outgoing : batch) {
+                // An empty map means the failure was not tied to single messages
+                if (failed.isEmpty() || failed.containsKey(outgoing.message)) {
+                    retry(outgoing, e);
+                }
+            }
+        } catch (MailException e) {
+            for (Outgoing outgoing : batch) {
+                retry(outgoing, e);
+            }
+        }
+    }
+
+    private void retry(Outgoing outgoing, Exception cause) {
+        if (outgoing.attempt >= maxAttempts) {
+            log.error("Giving up on mail to {} after {} attempts",
+                    String.join(",", outgoing.message.getTo()), outgoing.attempt, cause);
+            return;
+        }
+        long delay = backoffMs << Math.min(outgoing.attempt - 1, 10);
+        log.warn("Mail to {} failed (attempt {}), retrying in {} ms: {}",
+                String.join(",", outgoing.message.getTo()), outgoing.attempt, delay, cause.getMessage());
+        Outgoing next = new Outgoing(outgoing.message, outgoing.attempt + 1);
+        retryTimer.schedule(() -> {
+            if (!queue.offer(next)) {
+                log.error("Mail queue full, dropped retry of mail to {}", String.join(",", next.message.getTo()));
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    int queued() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Pending retries are abandoned; the workers finish what is already queued
+        retryTimer.shutdownNow();
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private record Outgoing(SimpleMailMessage message, int attempt) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.redtape.service;
+
+/**
+ * Thrown when the outbound mail queue is full and the message was not accepted.
+ */
+public class MailQueueFullException extends RuntimeException {
+
+    public MailQueueFullException() {
+        super("Mail queue is full, try again shortly");
+    }
+}
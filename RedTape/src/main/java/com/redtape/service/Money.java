@@ -0,0 +1,24 @@
+package com.redtape.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversions between the {@code double} amounts stored on entities and exact
+ * long cents used for arithmetic. Summing cents never drifts; converting back
+ * only at the edge gives the closest double to the exact amount.
+ */
+public final class Money {
+
+    private Money() {
+    }
+
+    public static long toCents(double amount) {
+        // BigDecimal.valueOf uses the shortest decimal form, so 19.99 stays 19.99
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    public static double toAmount(long cents) {
+        return BigDecimal.valueOf(cents, 2).doubleValue();
+    }
+}
@@ -0,0 +1,11 @@
+package com.redtape.service;
+
+/**
+ * Thrown when the order intake queue is full and the order was not accepted.
+ */
+public class OrderIntakeFullException extends RuntimeException {
+
+    public OrderIntakeFullException() {
+        super("Order intake is full, try again shortly");
+    }
+}
@@ -0,0 +1,480 @@
+package com.redtape.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redtape.dto.OrderIntakeStatus;
+import com.redtape.entity.Order;
+import com.redtape.entity.OrderItem;
+import com.redtape.entity.Product;
+import com.redtape.entity.User;
+import com.redtape.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous order intake.
+ *
+ * An accepted order gets its stock reserved, is appended to a local log and
+ * queued, and the caller gets a reference back straight away. A single writer
+ * drains the queue and saves the waiting orders together in one transaction,
+ * so their rows go out as JDBC batches with pooled ids from {@code order_seq}
+ * and {@code order_item_seq}. Callers poll {@link #status} for the outcome.
+ *
+ * The queue is bounded; when it is full new orders are turned away rather than
+ * letting latency grow. Log segments are deleted once every order in them is
+ * saved (or has failed for good), and anything left over after a crash is
+ * saved again on the next start.
+ *
+ * Each order record names the {@link InventoryService} reconcile pass that
+ * writes its stock to the product table, and the writer appends a marker once
+ * that pass has finished. On the next start an order behind such a marker
+ * keeps the units it already took; any other order reserves them again.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderIntakeService {
+
+    private static final long MAX_BACKOFF_MS = 5000;
+
+    // Tracked.completedAt of an order the writer has not finished with
+    private static final long NOT_COMPLETED = 0;
+
+    private final OrderRepository orderRepository;
+    private final InventoryService inventoryService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    @Value("${redtape.orders.intake-dir:./data/order-intake}")
+    private String intakeDir;
+
+    @Value("${redtape.orders.intake-fsync:false}")
+    private boolean intakeFsync;
+
+    @Value("${redtape.orders.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${redtape.orders.batch-size:200}")
+    private int batchSize;
+
+    @Value("${redtape.orders.status-retention-ms:600000}")
+    private long statusRetentionMs;
+
+    private SegmentedLog intakeLog;
+    private BlockingQueue<Entry> queue;
+
+    // Guards log append + enqueue together, so log order and queue order agree
+    private final Object intakeLock = new Object();
+
+    // Highest reconcile pass named by an order record / by a marker in this run; guarded by intakeLock
+    private long loggedPass;
+    private long markedPass;
+
+    private final Map<String, Tracked> statuses = new ConcurrentHashMap<>();
+
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    void open() throws IOException {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        intakeLog = new SegmentedLog(Paths.get(intakeDir), "orders-", intakeFsync);
+        // Orders and items used IDENTITY keys before
+        Sequences.alignPast(jdbcTemplate, "order_seq", "orders", 50);
+        Sequences.alignPast(jdbcTemplate, "order_item_seq", "order_item", 50);
+    }
+
+    // ===================== Intake =====================
+
+    /**
+     * Reserves the order's stock and queues it for saving.
+     *
+     * @throws InsufficientStockException if a product is short; nothing is queued
+     * @throws OrderIntakeFullException   if the queue is full; nothing is reserved
+     */
+    public OrderIntakeStatus submit(Order order) {
+        if (order.getUser() == null) {
+            throw new IllegalArgumentException("Order needs a user");
+        }
+        if (order.getItems() == null || order.getItems().isEmpty()) {
+            throw new IllegalArgumentException("Order needs at least one item");
+        }
+        List<PendingItem> items = new ArrayList<>(order.getItems().size());
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : order.getItems()) {
+            if (item.getProduct() == null) {
+                throw new IllegalArgumentException("Every order item needs a product");
+            }
+            items.add(new PendingItem(item.getProduct().getModelNo(), item.getQuantity(), item.getPrice()));
+            quantities.merge(item.getProduct().getModelNo(), item.getQuantity(), Integer::sum);
+        }
+        String reference = UUID.randomUUID().toString();
+        LocalDateTime orderDate = LocalDateTime.now();
+
+        OrderIntakeStatus status = new OrderIntakeStatus(reference, OrderIntakeStatus.State.QUEUED, null, null);
+        InventoryService.Reservation reservation = inventoryService.reserve(quantities);
+        try {
+            synchronized (intakeLock) {
+                if (queue.remainingCapacity() == 0) {
+                    throw new OrderIntakeFullException();
+                }
+                // Under the lock, after the units were taken: the marker for this pass can only follow the record
+                InventoryService.ReconcilePass pass = inventoryService.nextReconcile();
+                PendingOrder pending = new PendingOrder(reference, order.getUser().getId(), order.getTotalAmount(),
+                        orderDate, items, pass.run(), pass.pass());
+                long segment = intakeLog.append(objectMapper.writeValueAsString(pending));
+                loggedPass = pass.pass();
+                // Before the writer can see the order, so the outcome it records always replaces this
+                statuses.put(reference, new Tracked(status, NOT_COMPLETED));
+                // Only this thread adds under the lock, so the capacity check above still holds
+                queue.add(new Entry(pending, reservation, segment));
+            }
+        } catch (JsonProcessingException e) {
+            inventoryService.release(reservation);
+            throw new IllegalArgumentException("Unwritable order: " + e.getMessage());
+        } catch (RuntimeException e) {
+            inventoryService.release(reservation);
+            throw e;
+        }
+        return status;
+    }
+
+    // Where the order stands; falls back to the orders table once the in-memory entry has aged out
+    public Optional<OrderIntakeStatus> status(String reference) {
+        Tracked tracked = statuses.get(reference);
+        if (tracked != null) {
+            return Optional.of(tracked.status);
+        }
+        return orderRepository.findByReference(reference)
+                .map(order -> new OrderIntakeStatus(reference, OrderIntakeStatus.State.PERSISTED, order.getId(), null));
+    }
+
+    @Scheduled(fixedDelayString = "${redtape.orders.status-retention-ms:600000}")
+    public void pruneStatuses() {
+        long now = System.currentTimeMillis();
+        // Queued orders stay until the writer records their outcome
+        statuses.values().removeIf(tracked -> tracked.completedAt != NOT_COMPLETED
+                && now - tracked.completedAt > statusRetentionMs);
+    }
+
+    // ===================== Writer =====================
+
+    /**
+     * Saves whatever an earlier run left in the log, then starts the writer.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        List<PendingOrder> logged = new ArrayList<>();
+        // Highest finished reconcile pass per run, from the markers
+        Map<String, Long> reconciledThrough = new HashMap<>();
+        long replayedThrough = intakeLog.replay(record -> {
+            try {
+                JsonNode node = objectMapper.readTree(record);
+                if (node.has("reconciledPass")) {
+                    ReconcileMarker marker = objectMapper.treeToValue(node, ReconcileMarker.class);
+                    reconciledThrough.merge(marker.stockRun, marker.reconciledPass, Math::max);
+                } else {
+                    logged.add(objectMapper.treeToValue(node, PendingOrder.class));
+                }
+            } catch (IOException e) {
+                log.error("Skipping unreadable order intake record: {}", record, e);
+            }
+        });
+        List<Entry> leftovers = new ArrayList<>();
+        for (PendingOrder pending : logged) {
+            // Saved just before the crash, but its segment had not been deleted yet
+            if (orderRepository.findByReference(pending.reference).isEmpty()) {
+                leftovers.add(new Entry(pending, reserveAgain(pending, reconciledThrough), 0));
+            }
+        }
+        running = true;
+        for (int from = 0; from < leftovers.size(); from += batchSize) {
+            if (!commit(leftovers.subList(from, Math.min(from + batchSize, leftovers.size())))) {
+                return;
+            }
+        }
+        if (!leftovers.isEmpty()) {
+            log.info("Saved {} orders left in the intake log", leftovers.size());
+        }
+        intakeLog.deleteThrough(replayedThrough);
+
+        writer = new Thread(this::drain, "order-intake-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Units for an order acknowledged by an earlier run. If a marker shows the
+     * pass that wrote its stock finished, the product table already has them
+     * out and they are only adopted. Otherwise they were lost with the process
+     * and are taken again; the order is saved even if that stock has gone.
+     */
+    private InventoryService.Reservation reserveAgain(PendingOrder pending, Map<String, Long> reconciledThrough) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (PendingItem item : pending.items) {
+            quantities.merge(item.modelNo, item.quantity, Integer::sum);
+        }
+        // Records from before passes were logged have no run and are taken again, as they always were
+        Long through = pending.stockRun == null ? null : reconciledThrough.get(pending.stockRun);
+        if (through != null && through >= pending.stockPass) {
+            return inventoryService.adopt(quantities);
+        }
+        try {
+            return inventoryService.reserve(quantities);
+        } catch (RuntimeException e) {
+            log.warn("Could not re-reserve stock for order {}: {}", pending.reference, e.getMessage());
+            return null;
+        }
+    }
+
+    private void drain() {
+        while (running) {
+            try {
+                logReconciled();
+                Entry first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Entry> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                if (!commit(batch)) {
+                    return;
+                }
+
+                // Segments older than the oldest queued order hold nothing unsaved
+                long safeThrough;
+                synchronized (intakeLock) {
+                    Entry next = queue.peek();
+                    safeThrough = next == null ? intakeLog.rotate() : next.segment - 1;
+                }
+                intakeLog.deleteThrough(safeThrough);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Never let the writer die; the batch is still in the log
+                log.error("Order intake writer failed", e);
+            }
+        }
+    }
+
+    /**
+     * Appends a marker once a reconcile pass has finished that covers orders
+     * logged since the last marker. Idle runs write nothing.
+     */
+    private void logReconciled() {
+        InventoryService.ReconcilePass done = inventoryService.lastReconciled();
+        if (done == null) {
+            return;
+        }
+        synchronized (intakeLock) {
+            if (markedPass < loggedPass && done.pass() > markedPass) {
+                try {
+                    intakeLog.append(objectMapper.writeValueAsString(new ReconcileMarker(done.run(), done.pass())));
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException(e);
+                }
+                markedPass = done.pass();
+            }
+        }
+    }
+
+    /**
+     * Saves the batch, falling back to one order at a time if the batch fails.
+     * Returns false only if shutdown interrupted a retry; those orders stay in
+     * the log.
+     */
+    private boolean commit(List<Entry> batch) {
+        try {
+            saved(batch, persist(batch));
+            return true;
+        } catch (PersistFailure e) {
+            if (batch.size() > 1) {
+                log.warn("Order batch of {} failed, saving orders one by one", batch.size(), e.getCause());
+            }
+        }
+        for (Entry entry : batch) {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    saved(List.of(entry), persist(List.of(entry)));
+                    break;
+                } catch (PersistFailure failure) {
+                    RuntimeException e = (RuntimeException) failure.getCause();
+                    if (!isTransient(e)) {
+                        fail(entry, e);
+                        break;
+                    }
+                    if (!running) {
+                        return false;
+                    }
+                    log.warn("Database unavailable saving order {}, attempt {}", entry.pending.reference, attempt);
+                    if (!sleep(Math.min(MAX_BACKOFF_MS, 100L << Math.min(attempt, 6)))) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private List<Order> persist(List<Entry> entries) {
+        try {
+            return transactionTemplate.execute(status -> {
+                List<Order> orders = new ArrayList<>(entries.size());
+                for (Entry entry : entries) {
+                    Order order = toOrder(entry.pending);
+                    entityManager.persist(order);
+                    orders.add(order);
+                }
+                entityManager.flush();
+                entityManager.clear();
+                return orders;
+            });
+        } catch (RuntimeException e) {
+            throw new PersistFailure(e);
+        }
+    }
+
+    // Bookkeeping once the orders are committed; kept apart so its failures never cause a second insert
+    private void saved(List<Entry> entries, List<Order> saved) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            Order order = saved.get(i);
+            if (entry.reservation != null) {
+                inventoryService.hold(order.getId(), entry.reservation);
+            }
+            statuses.put(entry.pending.reference, new Tracked(new OrderIntakeStatus(entry.pending.reference,
+                    OrderIntakeStatus.State.PERSISTED, order.getId(), null), now));
+            eventPublisher.publishEvent(new OrderPlacedEvent(order));
+        }
+    }
+
+    private void fail(Entry entry, RuntimeException e) {
+        log.error("Order {} could not be saved", entry.pending.reference, e);
+        if (entry.reservation != null) {
+            inventoryService.release(entry.reservation);
+        }
+        statuses.put(entry.pending.reference, new Tracked(new OrderIntakeStatus(entry.pending.reference,
+                OrderIntakeStatus.State.FAILED, null, e.getMessage()), System.currentTimeMillis()));
+    }
+
+    private Order toOrder(PendingOrder pending) {
+        Order order = new Order();
+        order.setReference(pending.reference);
+        order.setUser(entityManager.getReference(User.class, pending.userId));
+        order.setTotalAmount(pending.totalAmount);
+        order.setOrderDate(pending.orderDate);
+        List<OrderItem> items = new ArrayList<>(pending.items.size());
+        for (PendingItem pendingItem : pending.items) {
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setProduct(entityManager.getReference(Product.class, pendingItem.modelNo));
+            item.setQuantity(pendingItem.quantity);
+            item.setPrice(pendingItem.price);
+            items.add(item);
+        }
+        order.setItems(items);
+        return order;
+    }
+
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Orders still queued are in the log and are saved on the next start. Writing their stock now,
+        // and logging that, keeps that start from taking it a second time
+        try {
+            inventoryService.reconcile();
+            logReconciled();
+        } catch (RuntimeException e) {
+            log.warn("Could not record reconciled stock for queued orders", e);
+        }
+        intakeLog.close();
+    }
+
+    // ===================== Records =====================
+
+    // What the log holds for one accepted order; stockRun/stockPass name the reconcile pass that writes its stock
+    record PendingOrder(String reference, long userId, double totalAmount, LocalDateTime orderDate,
+                        List<PendingItem> items, String stockRun, long stockPass) {
+    }
+
+    // Logged once every reconcile pass of stockRun up to reconciledPass has finished
+    record ReconcileMarker(String stockRun, long reconciledPass) {
+    }
+
+    record PendingItem(long modelNo, int quantity, double price) {
+    }
+
+    private record Entry(PendingOrder pending, InventoryService.Reservation reservation, long segment) {
+    }
+
+    private record Tracked(OrderIntakeStatus status, long completedAt) {
+    }
+
+    // Marks a failed database write, as opposed to a failure after the commit
+    private static final class PersistFailure extends RuntimeException {
+
+        PersistFailure(RuntimeException cause) {
+            super(cause);
+        }
+    }
+}
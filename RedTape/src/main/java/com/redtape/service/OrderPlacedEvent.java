@@ -0,0 +1,16 @@
+package com.redtape.service;
+
+import com.redtape.entity.Order;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published by {@link OrderService} once a new order has been saved.
+ */
+@Getter
+@RequiredArgsConstructor
+public class OrderPlacedEvent {
+
+    private final Order order;
+}
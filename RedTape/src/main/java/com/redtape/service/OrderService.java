@@ -1,13 +1,24 @@
 package com.redtape.service;
 
+import com.redtape.dto.OrderLineDTO;
+import com.redtape.dto.OrderSummaryDTO;
 import com.redtape.entity.Order;
 import com.redtape.entity.OrderItem;
 import com.redtape.entity.OrderStatus;
 import com.redtape.repository.OrderRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -15,18 +26,88 @@ import java.util.Optional;
 public class OrderService {
 
     private final OrderRepository orderRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InventoryService inventoryService;
+    private final OrderStatusService orderStatusService;
 
     public Order createOrder(Order order) {
+        Map<Long, Integer> quantities = new HashMap<>();
         if (order.getItems() != null) {
             for (OrderItem item : order.getItems()) {
                 item.setOrder(order); // Fixes the 400 error
+                if (item.getProduct() == null) {
+                    throw new IllegalArgumentException("Every order item needs a product");
+                }
+                quantities.merge(item.getProduct().getModelNo(), item.getQuantity(), Integer::sum);
             }
         }
-        return orderRepository.save(order);
+
+        // Throws InsufficientStockException before anything is written
+        InventoryService.Reservation reservation = inventoryService.reserve(quantities);
+        Order saved;
+        try {
+            saved = orderRepository.save(order);
+        } catch (RuntimeException e) {
+            inventoryService.release(reservation);
+            throw e;
+        }
+        inventoryService.hold(saved.getId(), reservation);
+        eventPublisher.publishEvent(new OrderPlacedEvent(saved));
+        return saved;
     }
 
+    // Newest first unless the caller asks otherwise
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "orderDate").and(Sort.by(Sort.Direction.DESC, "id"));
+
     public List<Order> getAllOrders() {
-        return orderRepository.findAll();
+        return orderRepository.findAllWithItems();
+    }
+
+    // Two queries whatever the page size: one for the page of ids, one for the orders with items and products
+    public Page<Order> getOrders(Pageable pageable) {
+        return loadPage(orderRepository.findIds(withDefaultSort(pageable)));
+    }
+
+    public Page<Order> getOrdersByUserId(Long userId, Pageable pageable) {
+        return loadPage(orderRepository.findIdsByUserId(userId, withDefaultSort(pageable)));
+    }
+
+    // Compact list view: one query for the orders, one for all their lines
+    public Page<OrderSummaryDTO> getOrderSummariesByUserId(Long userId, Pageable pageable) {
+        Page<OrderSummaryDTO> page = orderRepository.findSummariesByUserId(userId, withDefaultSort(pageable));
+        if (page.isEmpty()) {
+            return page;
+        }
+        Map<Long, OrderSummaryDTO> byId = new HashMap<>();
+        for (OrderSummaryDTO summary : page) {
+            byId.put(summary.getId(), summary);
+        }
+        for (OrderLineDTO line : orderRepository.findLinesByOrderIdIn(byId.keySet())) {
+            byId.get(line.getOrderId()).getItems().add(line);
+        }
+        return page;
+    }
+
+    private Page<Order> loadPage(Page<Long> ids) {
+        if (ids.isEmpty()) {
+            return new PageImpl<>(List.of(), ids.getPageable(), ids.getTotalElements());
+        }
+        Map<Long, Order> byId = new HashMap<>();
+        for (Order order : orderRepository.findWithItemsByIdIn(ids.getContent())) {
+            byId.put(order.getId(), order);
+        }
+        List<Order> ordered = new ArrayList<>(ids.getNumberOfElements());
+        for (Long id : ids) {
+            Order order = byId.get(id);
+            if (order != null) { // deleted between the two queries
+                ordered.add(order);
+            }
+        }
+        return new PageImpl<>(ordered, ids.getPageable(), ids.getTotalElements());
+    }
+
+    private static Pageable withDefaultSort(Pageable pageable) {
+        return pageable.getSort().isSorted() ? pageable : PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), NEWEST_FIRST);
     }
 
     public Optional<Order> getOrderById(Long id) {
@@ -37,18 +118,20 @@ public class OrderService {
         return orderRepository.findByUserId(userId);
     }
 
+    /**
+     * @throws InvalidStatusTransitionException if the order's current status cannot move to the given one
+     */
     public Optional<Order> updateOrderStatus(Long id, OrderStatus status) {
-        return orderRepository.findById(id).map(order -> {
-            order.setStatus(status);
-            return orderRepository.save(order);
-        });
+        if (!orderStatusService.transition(id, status)) {
+            return Optional.empty();
+        }
+        return orderRepository.findById(id);
     }
 
+    /**
+     * @throws InvalidStatusTransitionException if the order has already shipped
+     */
     public boolean cancelOrder(Long id) {
-        return orderRepository.findById(id).map(order -> {
-            order.setStatus(OrderStatus.CANCELLED);
-            orderRepository.save(order);
-            return true;
-        }).orElse(false);
+        return orderStatusService.transition(id, OrderStatus.CANCELLED);
     }
 }
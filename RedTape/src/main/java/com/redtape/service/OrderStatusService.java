@@ -0,0 +1,152 @@
+package com.redtape.service;
+
+import com.redtape.dto.OrderTransitionResult;
+import com.redtape.entity.OrderStatus;
+import com.redtape.entity.OrderStatusHistory;
+import com.redtape.repository.OrderRepository;
+import com.redtape.repository.OrderStatusHistoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves orders between statuses.
+ *
+ * Only the moves allowed by {@link OrderStatus#canMoveTo} are applied, and
+ * every applied move is appended to the order_status_history table. A batch of
+ * order ids is handled set-based: the current statuses are read and row-locked
+ * in one query, the allowed ones are changed with one UPDATE, and the history
+ * rows are inserted as a JDBC batch. Each id gets its own result.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderStatusService {
+
+    // Bounds the IN list and how long one transaction holds row locks
+    private static final int CHUNK_SIZE = 1000;
+
+    private final OrderRepository orderRepository;
+    private final OrderStatusHistoryRepository historyRepository;
+    private final InventoryService inventoryService;
+    private final TransactionTemplate transactionTemplate;
+
+    public List<OrderTransitionResult> transition(List<Long> orderIds, OrderStatus target) {
+        // Keep the caller's order, drop repeats
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        List<OrderTransitionResult> results = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            results.addAll(transitionChunk(ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size())), target));
+        }
+        return results;
+    }
+
+    /**
+     * Single-order form used by the per-order endpoints.
+     *
+     * @return false if the order does not exist
+     * @throws InvalidStatusTransitionException if the move is not allowed
+     */
+    public boolean transition(long orderId, OrderStatus target) {
+        OrderTransitionResult result = transition(List.of(orderId), target).get(0);
+        return switch (result.getOutcome()) {
+            case NOT_FOUND -> false;
+            case NOT_ALLOWED -> throw new InvalidStatusTransitionException(orderId, result.getPreviousStatus(), target);
+            case UPDATED, UNCHANGED -> true;
+        };
+    }
+
+    public List<OrderStatusHistory> getHistory(Long orderId) {
+        return historyRepository.findByOrderIdOrderByChangedAtAscIdAsc(orderId);
+    }
+
+    private List<OrderTransitionResult> transitionChunk(List<Long> ids, OrderStatus target) {
+        List<OrderTransitionResult> results = transactionTemplate.execute(status -> {
+            Map<Long, OrderStatus> current = new HashMap<>();
+            for (Object[] row : orderRepository.lockStatuses(ids)) {
+                current.put(((Number) row[0]).longValue(), OrderStatus.valueOf((String) row[1]));
+            }
+
+            List<OrderTransitionResult> chunk = new ArrayList<>(ids.size());
+            List<Long> moving = new ArrayList<>();
+            List<OrderStatusHistory> history = new ArrayList<>();
+            LocalDateTime now = LocalDateTime.now();
+            for (Long id : ids) {
+                OrderStatus from = current.get(id);
+                OrderTransitionResult.Outcome outcome;
+                if (from == null) {
+                    outcome = OrderTransitionResult.Outcome.NOT_FOUND;
+                } else if (from == target) {
+                    outcome = OrderTransitionResult.Outcome.UNCHANGED;
+                } else if (!from.canMoveTo(target)) {
+                    outcome = OrderTransitionResult.Outcome.NOT_ALLOWED;
+                } else {
+                    outcome = OrderTransitionResult.Outcome.UPDATED;
+                    moving.add(id);
+                    history.add(historyRow(id, from, target, now));
+                }
+                chunk.add(new OrderTransitionResult(id, outcome, from));
+            }
+
+            if (!moving.isEmpty()) {
+                orderRepository.setStatus(moving, target);
+                historyRepository.saveAll(history);
+            }
+            return chunk;
+        });
+
+        // Stock follows the committed status
+        for (OrderTransitionResult result : results) {
+            if (result.getOutcome() == OrderTransitionResult.Outcome.UPDATED) {
+                if (target == OrderStatus.CANCELLED) {
+                    inventoryService.release(result.getOrderId());
+                } else {
+                    inventoryService.confirm(result.getOrderId());
+                }
+            }
+        }
+        return results;
+    }
+
+    private static OrderStatusHistory historyRow(Long orderId, OrderStatus from, OrderStatus to, LocalDateTime at) {
+        OrderStatusHistory row = new OrderStatusHistory();
+        row.setOrderId(orderId);
+        row.setFromStatus(from);
+        row.setToStatus(to);
+        row.setChangedAt(at);
+        return row;
+    }
+
+    /**
+     * Cancels orders still PENDING after their stock reservation outlived
+     * {@code redtape.inventory.reservation-ttl-ms}; cancelling releases the
+     * stock. Does nothing unless that TTL is set, since nothing records a
+     * payment and PENDING alone does not mean unpaid.
+     */
+    @Scheduled(fixedDelayString = "${redtape.inventory.expiry-interval-ms:10000}")
+    public void cancelExpired() {
+        List<Long> expired = inventoryService.expiredOrders();
+        if (expired.isEmpty()) {
+            return;
+        }
+        int cancelled = 0;
+        for (OrderTransitionResult result : transition(expired, OrderStatus.CANCELLED)) {
+            if (result.getOutcome() == OrderTransitionResult.Outcome.UPDATED) {
+                cancelled++;
+            } else {
+                // Moved on (or vanished) without us hearing about it; its units are not coming back
+                inventoryService.confirm(result.getOrderId());
+            }
+        }
+        log.info("Cancelled {} of {} orders left PENDING past the reservation TTL", cancelled, expired.size());
+    }
+}
@@ -1,27 +1,41 @@
 package com.redtape.service;
 
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Random;
+import java.security.SecureRandom;
 
 @Service
+@RequiredArgsConstructor
 public class OtpService {
 
-    private final Map<String, String> otpStorage = new HashMap<>();
+    // Thread-safe; one instance instead of a new generator per code
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final OtpStore otpStore;
+
+    @Value("${redtape.otp.ttl-ms:300000}")
+    private long ttlMillis;
 
     public String generateOtp(String email) {
-        String otp = String.valueOf(100000 + new Random().nextInt(900000));
-        otpStorage.put(email, otp);
+        String otp = String.valueOf(100000 + RANDOM.nextInt(900000));
+        otpStore.put(email, otp, ttlMillis);
         return otp;
     }
 
+    public OtpStore.Result checkOtp(String email, String otp) {
+        if (email == null || otp == null) {
+            return OtpStore.Result.INVALID;
+        }
+        return otpStore.check(email, otp);
+    }
+
     public boolean validateOtp(String email, String otp) {
-        return otp.equals(otpStorage.get(email));
+        return checkOtp(email, otp) == OtpStore.Result.VALID;
     }
 
     public void clearOtp(String email) {
-        otpStorage.remove(email);
+        otpStore.remove(email);
     }
 }
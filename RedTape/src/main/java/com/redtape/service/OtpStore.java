@@ -0,0 +1,27 @@
+package com.redtape.service;
+
+/**
+ * Storage for one-time passwords, keyed by email.
+ *
+ * Each code lives until its TTL runs out, it is removed, or a new code replaces
+ * it. Wrong guesses are counted; once a code has used up its attempts it stays
+ * locked until it expires or is replaced. Pick the backend with
+ * {@code redtape.otp.store}: {@code memory} (node-local, the default) or
+ * {@code jdbc} (shared by every node through the database).
+ */
+public interface OtpStore {
+
+    enum Result {
+        VALID,
+        INVALID, // wrong code; one attempt used
+        EXPIRED, // no live code for this key
+        LOCKED   // too many wrong attempts
+    }
+
+    // Stores a fresh code, replacing any earlier one and its attempt count
+    void put(String key, String code, long ttlMillis);
+
+    Result check(String key, String code);
+
+    void remove(String key);
+}
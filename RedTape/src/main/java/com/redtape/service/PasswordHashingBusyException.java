@@ -0,0 +1,11 @@
+package com.redtape.service;
+
+/**
+ * Thrown when the password hashing pool is saturated and the request was not accepted.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException() {
+        super("Server is busy, try again shortly");
+    }
+}
@@ -0,0 +1,164 @@
+package com.redtape.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing on its own bounded pool.
+ *
+ * BCrypt is deliberately expensive, so it is kept off the Tomcat workers: a
+ * fixed number of hashing threads caps the CPU spent on credentials, and a
+ * bounded queue in front of them turns a login flood into fast 503s instead
+ * of a starved catalog. Before any work is queued, each client IP has to pass
+ * a per-window attempt limit, and an account with too many recent failed
+ * logins is refused outright.
+ */
+@Service
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final AttemptLimiter ipLimiter;
+    private final AttemptLimiter accountLimiter;
+
+    // Compared against when the account does not exist, so a miss costs as much as a hit
+    private volatile String dummyHash;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  @Value("${redtape.password.threads:0}") int threads,
+                                  @Value("${redtape.password.queue-capacity:200}") int queueCapacity,
+                                  @Value("${redtape.password.max-attempts-per-ip:30}") int maxAttemptsPerIp,
+                                  @Value("${redtape.password.max-failures-per-account:10}") int maxFailuresPerAccount,
+                                  @Value("${redtape.password.window-ms:60000}") long windowMs) {
+        this.passwordEncoder = passwordEncoder;
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "password-hashing-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.ipLimiter = new AttemptLimiter(maxAttemptsPerIp, windowMs);
+        this.accountLimiter = new AttemptLimiter(maxFailuresPerAccount, windowMs);
+    }
+
+    /**
+     * Hashes a new password. A null client IP (internal callers) skips the
+     * per-IP limit.
+     *
+     * @throws TooManyAttemptsException if the client IP is over its limit
+     * @throws PasswordHashingBusyException if the hashing queue is full
+     */
+    public CompletableFuture<String> encode(String rawPassword, String clientIp) {
+        admit(clientIp);
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Checks a login attempt. Pass a null hash when the account does not
+     * exist; the attempt then costs the same and never matches. Failed
+     * attempts count against the account.
+     *
+     * @throws TooManyAttemptsException if the client IP or the account is over its limit
+     * @throws PasswordHashingBusyException if the hashing queue is full
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String hash, String clientIp, String email) {
+        // Emails match case-insensitively, so "A@x.com" and "a@x.com" must share one counter
+        String account = email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+        if (account != null && accountLimiter.isBlocked(account)) {
+            throw new TooManyAttemptsException(accountLimiter.retryAfterSeconds(account));
+        }
+        admit(clientIp);
+        return submit(() -> {
+            boolean matched;
+            if (hash == null) {
+                passwordEncoder.matches(rawPassword, dummyHash());
+                matched = false;
+            } else {
+                matched = passwordEncoder.matches(rawPassword, hash);
+            }
+            if (account != null) {
+                if (matched) {
+                    accountLimiter.reset(account);
+                } else {
+                    accountLimiter.record(account);
+                }
+            }
+            return matched;
+        });
+    }
+
+    // True when the hash was made with an older algorithm or a lower cost than the configured one
+    public boolean needsRehash(String hash) {
+        return hash != null && passwordEncoder.upgradeEncoding(hash);
+    }
+
+    // Hashes without admission checks, for upgrading a password that was just verified
+    public CompletableFuture<String> rehash(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Waits for a hashing result on the calling thread, unwrapping the
+     * exception the task failed with.
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void admit(String clientIp) {
+        if (clientIp != null && !ipLimiter.tryAcquire(clientIp)) {
+            throw new TooManyAttemptsException(ipLimiter.retryAfterSeconds(clientIp));
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            throw new PasswordHashingBusyException();
+        }
+    }
+
+    // Runs on a hashing thread
+    private String dummyHash() {
+        String hash = dummyHash;
+        if (hash == null) {
+            hash = passwordEncoder.encode("redtape-dummy-password");
+            dummyHash = hash;
+        }
+        return hash;
+    }
+
+    @Scheduled(fixedDelayString = "${redtape.password.window-ms:60000}")
+    public void purgeExpiredWindows() {
+        ipLimiter.purgeExpired();
+        accountLimiter.purgeExpired();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
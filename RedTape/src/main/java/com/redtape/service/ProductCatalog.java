@@ -0,0 +1,120 @@
+package com.redtape.service;
+
+import com.redtape.entity.Product;
+import com.redtape.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * In-process snapshot of the product table that serves the catalog read paths.
+ *
+ * The snapshot is loaded from the database on first use and then kept current
+ * by {@link ProductChangedEvent}s, which are applied once the write that raised
+ * them has committed. Reads never touch the database after the initial load.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductCatalog {
+
+    private final ProductRepository productRepository;
+
+    // Ordered by modelNo so listings come back in the same order as findAll()
+    private final ConcurrentSkipListMap<Long, Product> products = new ConcurrentSkipListMap<>();
+
+    // Bumped on every applied change; lets derived indexes detect staleness cheaply
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile boolean loaded;
+
+    // ===================== Read =====================
+
+    public List<Product> findAll() {
+        ensureLoaded();
+        return new ArrayList<>(products.values());
+    }
+
+    public Optional<Product> findByModelNo(long modelNo) {
+        ensureLoaded();
+        return Optional.ofNullable(products.get(modelNo));
+    }
+
+    // Up to limit products with a modelNo greater than the given one, in modelNo order
+    public List<Product> findAfter(long modelNo, int limit) {
+        ensureLoaded();
+        List<Product> result = new ArrayList<>(Math.min(limit, products.size()));
+        for (Product product : products.tailMap(modelNo, false).values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(product);
+        }
+        return result;
+    }
+
+    public List<Product> findAll(Predicate<Product> filter) {
+        ensureLoaded();
+        List<Product> result = new ArrayList<>();
+        for (Product product : products.values()) {
+            if (filter.test(product)) {
+                result.add(product);
+            }
+        }
+        return result;
+    }
+
+    public Collection<Product> values() {
+        ensureLoaded();
+        return products.values();
+    }
+
+    public long version() {
+        ensureLoaded();
+        return version.get();
+    }
+
+    // ===================== Maintenance =====================
+
+    // Between CatalogVersions' two listeners, which read the product before and publish validators after;
+    // ProductFilterIndex (+ 2) builds on this one
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        if (!loaded) {
+            // The first read will load the committed state anyway
+            return;
+        }
+        if (event.isDeleted()) {
+            products.remove(event.getModelNo());
+        } else {
+            products.put(event.getModelNo(), event.getProduct());
+        }
+        version.incrementAndGet();
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                // Change events block on this monitor while we load, so none are lost
+                for (Product product : productRepository.findAll()) {
+                    products.put(product.getModelNo(), product);
+                }
+                version.incrementAndGet();
+                loaded = true;
+            }
+        }
+    }
+}
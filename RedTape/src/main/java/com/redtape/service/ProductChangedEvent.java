@@ -0,0 +1,32 @@
+package com.redtape.service;
+
+import com.redtape.entity.Product;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published by {@link ProductService} after a product write so in-memory
+ * read models can be updated without going back to the database.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ProductChangedEvent {
+
+    private final long modelNo;
+
+    // The saved product, or null when the product was deleted
+    private final Product product;
+
+    public static ProductChangedEvent saved(Product product) {
+        return new ProductChangedEvent(product.getModelNo(), product);
+    }
+
+    public static ProductChangedEvent deleted(long modelNo) {
+        return new ProductChangedEvent(modelNo, null);
+    }
+
+    public boolean isDeleted() {
+        return product == null;
+    }
+}
@@ -0,0 +1,59 @@
+package com.redtape.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.redtape.entity.Product;
+import com.redtape.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams the whole catalog as newline-delimited JSON in constant memory.
+ *
+ * Rows come from a forward-only JDBC cursor, each entity is detached as soon
+ * as it has been written, and output is flushed every {@link #FLUSH_EVERY}
+ * rows so the first bytes reach the client while the query is still running.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductExportService {
+
+    private static final int FLUSH_EVERY = 200;
+
+    private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public void exportCatalog(OutputStream out) throws IOException {
+        ObjectWriter rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (Stream<Product> products = productRepository.streamAll();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            // The servlet container owns the response stream
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Rows are ended with '\n' below; Jackson's default " " between root values would start every later line
+            generator.setRootValueSeparator(null);
+            int written = 0;
+            Iterator<Product> rows = products.iterator();
+            while (rows.hasNext()) {
+                Product product = rows.next();
+                rowWriter.writeValue(generator, product);
+                generator.writeRaw('\n');
+                // Keep the persistence context from growing with the catalog
+                entityManager.detach(product);
+                if (++written % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.redtape.service;
+
+import com.redtape.entity.Category;
+import com.redtape.entity.Product;
+import com.redtape.entity.SubCategory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Answers the combined product filter (same contract as
+ * {@code ProductRepository.searchProducts}) from precomputed structures built
+ * over the {@link ProductCatalog}.
+ *
+ * Every product gets an ordinal; category, subcategory and color map to bitsets
+ * of ordinals, and price/quantity are kept as sorted primitive arrays so a range
+ * becomes a binary search. A query is the intersection of the matching bitsets.
+ * The structures are built from the catalog on first use and then updated per
+ * product from {@link ProductChangedEvent}s: a change clears and sets that
+ * product's bits and moves its entries in the sorted arrays. A deleted product
+ * leaves its ordinal unused until enough have piled up to rebuild.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductFilterIndex {
+
+    // Rebuild once this many ordinals are unused and they outnumber the live ones
+    private static final int MIN_DEAD_FOR_REBUILD = 64;
+
+    private final ProductCatalog productCatalog;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All guarded by lock. products holds null at the ordinal of a deleted product
+    private final List<Product> products = new ArrayList<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final Map<Category, BitSet> byCategory = new EnumMap<>(Category.class);
+    private final Map<SubCategory, BitSet> bySubCategory = new EnumMap<>(SubCategory.class);
+    private final Map<String, BitSet> byColor = new HashMap<>();
+
+    // Ordinals sorted by price / quantity, with the sort keys alongside for binary search; first size slots in use
+    private double[] prices = new double[0];
+    private int[] priceOrdinals = new int[0];
+    private int[] quantities = new int[0];
+    private int[] quantityOrdinals = new int[0];
+    private int size;
+
+    // Ordinals follow modelNo order unless a product was added below the highest modelNo
+    private boolean inModelNoOrder;
+    private long maxModelNo;
+
+    private volatile boolean loaded;
+
+    public List<Product> search(Category category, SubCategory subCategory, Double minPrice, Double maxPrice,
+                                String color, Integer minQuantity) {
+        ensureLoaded();
+        List<Product> result;
+        boolean sorted;
+        lock.readLock().lock();
+        try {
+            BitSet matches = match(category, subCategory, minPrice, maxPrice, color, minQuantity);
+            result = new ArrayList<>(matches.cardinality());
+            for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                result.add(products.get(i));
+            }
+            sorted = inModelNoOrder;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!sorted) {
+            result.sort(Comparator.comparingLong(Product::getModelNo));
+        }
+        return result;
+    }
+
+    public Page<Product> search(Category category, SubCategory subCategory, Double minPrice, Double maxPrice,
+                                String color, Integer minQuantity, Pageable pageable) {
+        List<Product> matches = search(category, subCategory, minPrice, maxPrice, color, minQuantity);
+        if (pageable.getSort().isSorted()) {
+            matches.sort(comparatorFor(pageable.getSort()));
+        }
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(matches, pageable, matches.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        int to = Math.min(from + pageable.getPageSize(), matches.size());
+        return new PageImpl<>(new ArrayList<>(matches.subList(from, to)), pageable, matches.size());
+    }
+
+    // ===================== Maintenance =====================
+
+    // Right after ProductCatalog, so a rebuild below reads the catalog with this change applied
+    @Order(Ordered.HIGHEST_PRECEDENCE + 2)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                // The first search will build from the catalog anyway
+                return;
+            }
+            Integer ordinal = ordinals.get(event.getModelNo());
+            if (event.isDeleted()) {
+                if (ordinal != null) {
+                    unindex(ordinal);
+                    products.set(ordinal, null);
+                    ordinals.remove(event.getModelNo());
+                    live.clear(ordinal);
+                }
+            } else if (ordinal != null) {
+                unindex(ordinal);
+                products.set(ordinal, event.getProduct());
+                index(ordinal);
+            } else {
+                add(event.getProduct());
+            }
+            int dead = products.size() - ordinals.size();
+            if (dead >= MIN_DEAD_FOR_REBUILD && dead > ordinals.size()) {
+                rebuild();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                rebuild();
+                loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Callers hold the write lock
+    private void rebuild() {
+        products.clear();
+        ordinals.clear();
+        live.clear();
+        byCategory.clear();
+        bySubCategory.clear();
+        byColor.clear();
+        size = 0;
+        inModelNoOrder = true;
+        maxModelNo = Long.MIN_VALUE;
+
+        // Copied first: the catalog may change while we build, and those events are applied after us
+        List<Product> all = new ArrayList<>(productCatalog.values());
+        int n = all.size();
+        prices = new double[n];
+        priceOrdinals = new int[n];
+        quantities = new int[n];
+        quantityOrdinals = new int[n];
+        // The catalog iterates in modelNo order, so ordinals start out in modelNo order too
+        Integer[] byPrice = new Integer[n];
+        Integer[] byQuantity = new Integer[n];
+        for (Product product : all) {
+            int ordinal = products.size();
+            products.add(product);
+            ordinals.put(product.getModelNo(), ordinal);
+            live.set(ordinal);
+            maxModelNo = Math.max(maxModelNo, product.getModelNo());
+            setBits(ordinal, product);
+            byPrice[ordinal] = ordinal;
+            byQuantity[ordinal] = ordinal;
+        }
+        size = n;
+
+        Arrays.sort(byPrice, (a, b) -> Double.compare(products.get(a).getPrice(), products.get(b).getPrice()));
+        Arrays.sort(byQuantity, Comparator.comparingInt(i -> products.get(i).getQuantity()));
+        for (int i = 0; i < size; i++) {
+            priceOrdinals[i] = byPrice[i];
+            prices[i] = products.get(byPrice[i]).getPrice();
+            quantityOrdinals[i] = byQuantity[i];
+            quantities[i] = products.get(byQuantity[i]).getQuantity();
+        }
+    }
+
+    // Callers hold the write lock
+    private void add(Product product) {
+        int ordinal = products.size();
+        products.add(product);
+        ordinals.put(product.getModelNo(), ordinal);
+        live.set(ordinal);
+        if (product.getModelNo() < maxModelNo) {
+            inModelNoOrder = false;
+        }
+        maxModelNo = Math.max(maxModelNo, product.getModelNo());
+        index(ordinal);
+    }
+
+    // Callers hold the write lock; adds the product at this ordinal to every structure
+    private void index(int ordinal) {
+        Product product = products.get(ordinal);
+        setBits(ordinal, product);
+        if (size == prices.length) {
+            int capacity = Math.max(16, size * 3 / 2);
+            prices = Arrays.copyOf(prices, capacity);
+            priceOrdinals = Arrays.copyOf(priceOrdinals, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            quantityOrdinals = Arrays.copyOf(quantityOrdinals, capacity);
+        }
+        int at = upperBound(prices, size, product.getPrice());
+        System.arraycopy(prices, at, prices, at + 1, size - at);
+        System.arraycopy(priceOrdinals, at, priceOrdinals, at + 1, size - at);
+        prices[at] = product.getPrice();
+        priceOrdinals[at] = ordinal;
+
+        at = upperBound(quantities, size, product.getQuantity());
+        System.arraycopy(quantities, at, quantities, at + 1, size - at);
+        System.arraycopy(quantityOrdinals, at, quantityOrdinals, at + 1, size - at);
+        quantities[at] = product.getQuantity();
+        quantityOrdinals[at] = ordinal;
+        size++;
+    }
+
+    // Callers hold the write lock; the reverse of index, using the product still stored at the ordinal
+    private void unindex(int ordinal) {
+        Product product = products.get(ordinal);
+        if (product.getCategory() != null) {
+            clearBit(byCategory, product.getCategory(), ordinal);
+        }
+        if (product.getSubCategory() != null) {
+            clearBit(bySubCategory, product.getSubCategory(), ordinal);
+        }
+        if (product.getColor() != null) {
+            clearBit(byColor, product.getColor().toLowerCase(Locale.ROOT), ordinal);
+        }
+
+        int at = lowerBound(prices, size, product.getPrice());
+        while (priceOrdinals[at] != ordinal) {
+            at++;
+        }
+        System.arraycopy(prices, at + 1, prices, at, size - at - 1);
+        System.arraycopy(priceOrdinals, at + 1, priceOrdinals, at, size - at - 1);
+
+        at = lowerBound(quantities, size, product.getQuantity());
+        while (quantityOrdinals[at] != ordinal) {
+            at++;
+        }
+        System.arraycopy(quantities, at + 1, quantities, at, size - at - 1);
+        System.arraycopy(quantityOrdinals, at + 1, quantityOrdinals, at, size - at - 1);
+        size--;
+    }
+
+    private void setBits(int ordinal, Product product) {
+        if (product.getCategory() != null) {
+            byCategory.computeIfAbsent(product.getCategory(), c -> new BitSet()).set(ordinal);
+        }
+        if (product.getSubCategory() != null) {
+            bySubCategory.computeIfAbsent(product.getSubCategory(), c -> new BitSet()).set(ordinal);
+        }
+        if (product.getColor() != null) {
+            byColor.computeIfAbsent(product.getColor().toLowerCase(Locale.ROOT), c -> new BitSet()).set(ordinal);
+        }
+    }
+
+    // Drops the bitset once empty so colors nobody uses any more do not linger
+    private static <K> void clearBit(Map<K, BitSet> index, K key, int ordinal) {
+        BitSet bits = index.get(key);
+        if (bits != null) {
+            bits.clear(ordinal);
+            if (bits.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    // ===================== Query =====================
+
+    // Callers hold the read lock
+    private BitSet match(Category category, SubCategory subCategory, Double minPrice, Double maxPrice,
+                         String color, Integer minQuantity) {
+        BitSet result = (BitSet) live.clone();
+        if (category != null) {
+            result.and(byCategory.getOrDefault(category, new BitSet()));
+        }
+        if (subCategory != null) {
+            result.and(bySubCategory.getOrDefault(subCategory, new BitSet()));
+        }
+        if (color != null) {
+            result.and(byColor.getOrDefault(color.toLowerCase(Locale.ROOT), new BitSet()));
+        }
+        if ((minPrice != null || maxPrice != null) && !result.isEmpty()) {
+            int from = minPrice == null ? 0 : lowerBound(prices, size, minPrice);
+            int to = maxPrice == null ? size : upperBound(prices, size, maxPrice);
+            result.and(ordinals(priceOrdinals, from, to));
+        }
+        if (minQuantity != null && !result.isEmpty()) {
+            result.and(ordinals(quantityOrdinals, lowerBound(quantities, size, minQuantity), size));
+        }
+        return result;
+    }
+
+    private BitSet ordinals(int[] sortedOrdinals, int from, int to) {
+        BitSet bits = new BitSet(products.size());
+        for (int i = from; i < to; i++) {
+            bits.set(sortedOrdinals[i]);
+        }
+        return bits;
+    }
+
+    // First index below size whose value is >= key
+    private static int lowerBound(double[] values, int size, double key) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Double.compare(values[mid], key) < 0) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    // First index below size whose value is > key
+    private static int upperBound(double[] values, int size, double key) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Double.compare(values[mid], key) <= 0) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private static int lowerBound(int[] values, int size, int key) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < key) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private static int upperBound(int[] values, int size, int key) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] <= key) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private static Comparator<Product> comparatorFor(Sort sort) {
+        Comparator<Product> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Product> next = switch (order.getProperty()) {
+                case "modelNo" -> Comparator.comparingLong(Product::getModelNo);
+                case "name" -> Comparator.comparing(Product::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+                case "price" -> Comparator.comparingDouble(Product::getPrice);
+                case "quantity" -> Comparator.comparingInt(Product::getQuantity);
+                case "color" -> Comparator.comparing(Product::getColor, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+                default -> throw new IllegalArgumentException("Unsupported sort property: " + order.getProperty());
+            };
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+}
@@ -0,0 +1,370 @@
+package com.redtape.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redtape.dto.ImportReport;
+import com.redtape.dto.ImportRowError;
+import com.redtape.entity.Category;
+import com.redtape.entity.Product;
+import com.redtape.entity.SubCategory;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk product import for supplier feeds.
+ *
+ * The upload (a JSON array or CSV with a header row) is read as a stream and
+ * cut into chunks. Each chunk is validated in parallel, then written in its own
+ * transaction so Hibernate can send the inserts as JDBC batches (see
+ * {@code hibernate.jdbc.batch_size}) using pooled ids from {@code product_seq}.
+ * Rows are checked against the column lengths before the write; if a chunk
+ * still fails it is retried one row at a time, so only the rows the database
+ * refuses are lost. Every rejected row is listed in the returned
+ * {@link ImportReport}. An upload that cannot be read to the end
+ * still gets a report: everything before {@code abortedAtRow} was processed.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductImportService {
+
+    // Keeps the report bounded when a whole feed is malformed
+    private static final int MAX_REPORTED_ERRORS = 10_000;
+
+    // A quoted CSV field may span lines; past this an unclosed quote is taken as a broken upload
+    private static final int MAX_CSV_RECORD_CHARS = 100_000;
+
+    // Product's @Column lengths
+    private static final int MAX_NAME = 50;
+    private static final int MAX_COLOR = 30;
+    private static final int MAX_DESCRIPTION = 255;
+    private static final int MAX_IMAGE_URL = 900;
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    @Value("${redtape.import.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Imports a JSON array of products. If the stream breaks off (a syntax
+     * error, a truncated upload) the chunks already written stay written, and
+     * the report is marked aborted at the row that could not be read.
+     */
+    public ImportReport importJson(InputStream in) {
+        ImportReport report = new ImportReport();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        long rowNumber = 0; // rows read completely
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                abort(report, 1, "Expected a JSON array of products");
+                return report;
+            }
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                long row = rowNumber + 1;
+                if (token == null) {
+                    abort(report, row, "Upload ended before the closing ]");
+                    break;
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    reject(report, row, "Expected a product object");
+                } else {
+                    JsonNode node = parser.readValueAsTree();
+                    try {
+                        chunk.add(new Row(row, objectMapper.treeToValue(node, Product.class)));
+                    } catch (IOException | IllegalArgumentException e) {
+                        reject(report, row, "Unreadable row: " + e.getMessage());
+                    }
+                }
+                rowNumber = row;
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            // Nothing after a syntax error or a broken connection can be read
+            abort(report, rowNumber + 1, describe(e));
+        }
+        report.setTotalRows(rowNumber);
+        writeChunk(chunk, report);
+        return report;
+    }
+
+    /**
+     * CSV with a header row. Quoted fields may contain commas, "" for a quote
+     * and line breaks. A read failure, or a quote left open at the end of the
+     * upload, aborts the same way as in importJson.
+     */
+    public ImportReport importCsv(InputStream in) {
+        ImportReport report = new ImportReport();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        long rowNumber = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String headerLine = readCsvRecord(reader);
+            if (headerLine == null) {
+                return report;
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            List<String> header = parseCsvLine(headerLine);
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+
+            String line;
+            while ((line = readCsvRecord(reader)) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                rowNumber++;
+                try {
+                    chunk.add(new Row(rowNumber, fromCsv(parseCsvLine(line), columns)));
+                } catch (IllegalArgumentException e) {
+                    reject(report, rowNumber, "Unreadable row: " + e.getMessage());
+                }
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            abort(report, rowNumber + 1, describe(e));
+        }
+        report.setTotalRows(rowNumber);
+        writeChunk(chunk, report);
+        return report;
+    }
+
+    // ===================== Chunk processing =====================
+
+    private void writeChunk(List<Row> chunk, ImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        // Validation is CPU-only, so the chunk can be checked in parallel
+        String[] problems = new String[chunk.size()];
+        IntStream.range(0, chunk.size()).parallel().forEach(i -> {
+            try {
+                ProductService.validateProduct(chunk.get(i).product);
+                checkColumnLengths(chunk.get(i).product);
+            } catch (IllegalArgumentException e) {
+                problems[i] = e.getMessage();
+            }
+        });
+
+        List<Row> valid = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            if (problems[i] != null) {
+                reject(report, chunk.get(i).number, problems[i]);
+            } else {
+                valid.add(chunk.get(i));
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        List<Row> written = valid;
+        try {
+            persist(valid);
+        } catch (RuntimeException e) {
+            // Retry one row at a time so the report names the rows the database refused
+            written = new ArrayList<>(valid.size());
+            for (Row row : valid) {
+                try {
+                    persist(List.of(row));
+                    written.add(row);
+                } catch (RuntimeException rowFailure) {
+                    reject(report, row.number, "Could not be saved: "
+                            + NestedExceptionUtils.getMostSpecificCause(rowFailure).getMessage());
+                }
+            }
+        }
+
+        report.setImported(report.getImported() + written.size());
+        for (Row row : written) {
+            eventPublisher.publishEvent(ProductChangedEvent.saved(row.product));
+        }
+    }
+
+    private void persist(List<Row> rows) {
+        for (Row row : rows) {
+            // Model numbers are always assigned by the sequence; also drops one kept from a rolled-back attempt
+            row.product.setModelNo(0);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Row row : rows) {
+                entityManager.persist(row.product);
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    private static void checkColumnLengths(Product product) {
+        checkLength("name", product.getName(), MAX_NAME);
+        checkLength("color", product.getColor(), MAX_COLOR);
+        checkLength("description", product.getDescription(), MAX_DESCRIPTION);
+        checkLength("img1", product.getImg1(), MAX_IMAGE_URL);
+        checkLength("img2", product.getImg2(), MAX_IMAGE_URL);
+        checkLength("img3", product.getImg3(), MAX_IMAGE_URL);
+        checkLength("img4", product.getImg4(), MAX_IMAGE_URL);
+        checkLength("img5", product.getImg5(), MAX_IMAGE_URL);
+    }
+
+    private static void checkLength(String field, String value, int max) {
+        if (value != null && value.length() > max) {
+            throw new IllegalArgumentException("Product " + field + " is longer than " + max + " characters.");
+        }
+    }
+
+    private static void abort(ImportReport report, long rowNumber, String reason) {
+        report.setAborted(true);
+        report.setAbortedAtRow(rowNumber);
+        report.setAbortReason(reason);
+    }
+
+    private static String describe(IOException e) {
+        if (e instanceof JsonProcessingException json && json.getLocation() != null) {
+            return json.getOriginalMessage() + " (line " + json.getLocation().getLineNr()
+                    + ", column " + json.getLocation().getColumnNr() + ")";
+        }
+        return "Upload could not be read: " + e.getMessage();
+    }
+
+    private static void reject(ImportReport report, long rowNumber, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new ImportRowError(rowNumber, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    // ===================== CSV =====================
+
+    private static Product fromCsv(List<String> values, Map<String, Integer> columns) {
+        Product product = new Product();
+        product.setName(column(values, columns, "name"));
+        product.setColor(column(values, columns, "color"));
+        product.setDescription(column(values, columns, "description"));
+        String price = column(values, columns, "price");
+        product.setPrice(price == null ? 0 : Double.parseDouble(price));
+        String quantity = column(values, columns, "quantity");
+        product.setQuantity(quantity == null ? 0 : Integer.parseInt(quantity));
+        String category = column(values, columns, "category");
+        product.setCategory(category == null ? null : Category.valueOf(category.toUpperCase(Locale.ROOT)));
+        String subCategory = column(values, columns, "subcategory");
+        product.setSubCategory(subCategory == null ? null : SubCategory.valueOf(subCategory.toUpperCase(Locale.ROOT)));
+        product.setImg1(column(values, columns, "img1"));
+        product.setImg2(column(values, columns, "img2"));
+        product.setImg3(column(values, columns, "img3"));
+        product.setImg4(column(values, columns, "img4"));
+        product.setImg5(column(values, columns, "img5"));
+        return product;
+    }
+
+    private static String column(List<String> values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Reads one CSV record: a line, plus the lines after it while a quoted
+     * field is still open. Returns null at the end of the upload.
+     */
+    static String readCsvRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        int quotes = quoteCount(line);
+        if (quotes % 2 == 0) {
+            return line;
+        }
+        // An odd count means a quoted field runs on; "" adds two, so it never changes the parity
+        StringBuilder record = new StringBuilder(line);
+        while (quotes % 2 != 0) {
+            String next = reader.readLine();
+            if (next == null) {
+                throw new EOFException("Upload ended inside a quoted field");
+            }
+            if (record.length() + next.length() > MAX_CSV_RECORD_CHARS) {
+                throw new IOException("Quoted field runs past " + MAX_CSV_RECORD_CHARS + " characters");
+            }
+            record.append('\n').append(next);
+            quotes += quoteCount(next);
+        }
+        return record.toString();
+    }
+
+    private static int quoteCount(String line) {
+        int count = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Splits one CSV record; supports quoted fields with "" as an escaped quote
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private record Row(long number, Product product) {
+    }
+}
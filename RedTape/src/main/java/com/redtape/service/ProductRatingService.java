@@ -0,0 +1,168 @@
+package com.redtape.service;
+
+import com.redtape.dto.RatingSummaryDTO;
+import com.redtape.entity.ProductRating;
+import com.redtape.entity.UserReview;
+import com.redtape.repository.ProductRatingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-product rating aggregates (count, sum and a 1-5 star histogram).
+ *
+ * The product_rating rows are bumped in the same transaction that saves the
+ * reviews, so they never drift from the reviews table. Reads are served from an
+ * in-memory LRU cache capped at {@code redtape.reviews.rating-cache-size}; a
+ * product's entry is dropped once a review for it commits and reloaded on the
+ * next read, and a whole page of products is loaded with one query. Ids that
+ * are not in the catalog are answered with an empty summary but never cached.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductRatingService {
+
+    private final ProductRatingRepository ratingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductCatalog productCatalog;
+
+    @Value("${redtape.reviews.rating-cache-size:10000}")
+    private int cacheSize;
+
+    // Guarded by itself; access-ordered for LRU eviction
+    private final Map<Long, RatingSummaryDTO> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, RatingSummaryDTO> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    // Bumped on every invalidation; a load that overlapped one is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public RatingSummaryDTO getRating(long modelNo) {
+        return getRatings(List.of(modelNo)).get(0);
+    }
+
+    // Summaries in the order asked for; products without reviews get an empty summary
+    public List<RatingSummaryDTO> getRatings(Collection<Long> modelNos) {
+        Map<Long, RatingSummaryDTO> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        synchronized (cache) {
+            for (Long modelNo : new LinkedHashSet<>(modelNos)) {
+                RatingSummaryDTO summary = cache.get(modelNo);
+                if (summary != null) {
+                    found.put(modelNo, summary);
+                } else {
+                    missing.add(modelNo);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            long before = generation.get();
+            Map<Long, RatingSummaryDTO> loaded = new HashMap<>();
+            for (ProductRating rating : ratingRepository.findAllById(missing)) {
+                loaded.put(rating.getModelNo(), toSummary(rating));
+            }
+            for (Long modelNo : missing) {
+                // Unrated products are cached too so they don't query every time; made-up ids are not
+                if (!loaded.containsKey(modelNo) && productCatalog.findByModelNo(modelNo).isPresent()) {
+                    loaded.put(modelNo, empty(modelNo));
+                }
+            }
+            synchronized (cache) {
+                if (generation.get() == before) {
+                    cache.putAll(loaded);
+                }
+            }
+            found.putAll(loaded);
+        }
+
+        List<RatingSummaryDTO> result = new ArrayList<>(modelNos.size());
+        for (Long modelNo : modelNos) {
+            RatingSummaryDTO summary = found.get(modelNo);
+            result.add(summary != null ? summary : empty(modelNo));
+        }
+        return result;
+    }
+
+    /**
+     * Adds the reviews to their products' totals, one statement per product.
+     * Called inside the transaction that saves the reviews.
+     */
+    void recordReviews(Collection<UserReview> reviews) {
+        Map<Long, long[]> deltas = new HashMap<>();
+        for (UserReview review : reviews) {
+            // [count, sum, star1 .. star5]
+            long[] delta = deltas.computeIfAbsent(review.getProduct().getModelNo(), id -> new long[7]);
+            delta[0]++;
+            delta[1] += review.getRating();
+            delta[1 + review.getRating()]++;
+        }
+        deltas.forEach((modelNo, d) -> ratingRepository.addRatings(modelNo, d[0], d[1], d[2], d[3], d[4], d[5], d[6]));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReviewAdded(ReviewAddedEvent event) {
+        invalidate(event.getModelNo());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // A new product may have been answered (uncached) as unknown; a deleted one must go
+        invalidate(event.getModelNo());
+    }
+
+    private void invalidate(long modelNo) {
+        synchronized (cache) {
+            generation.incrementAndGet();
+            cache.remove(modelNo);
+        }
+    }
+
+    /**
+     * Recomputes product_rating from the reviews table at every start, as one
+     * idempotent statement. Checking for existing rows first raced with live
+     * review commits: a row created by a new review made the check pass and the
+     * product's older reviews were never counted. The statement's locking read
+     * of user_review (InnoDB, REPEATABLE READ) orders it against concurrent
+     * review inserts, and their increments land on top of the rebuilt totals.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        Integer rows = transactionTemplate.execute(status -> ratingRepository.rebuildAll());
+        if (rows != null && rows > 0) {
+            log.info("Rebuilt rating aggregates ({} rows written)", rows);
+        }
+        synchronized (cache) {
+            generation.incrementAndGet();
+            cache.clear();
+        }
+    }
+
+    private static RatingSummaryDTO toSummary(ProductRating rating) {
+        long[] stars = {rating.getStar1(), rating.getStar2(), rating.getStar3(), rating.getStar4(), rating.getStar5()};
+        double average = rating.getReviewCount() == 0 ? 0
+                : Math.round(rating.getRatingSum() * 100.0 / rating.getReviewCount()) / 100.0;
+        return new RatingSummaryDTO(rating.getModelNo(), rating.getReviewCount(), average, stars);
+    }
+
+    private static RatingSummaryDTO empty(Long modelNo) {
+        return new RatingSummaryDTO(modelNo, 0, 0, new long[5]);
+    }
+}
@@ -0,0 +1,271 @@
+package com.redtape.service;
+
+import com.redtape.entity.Product;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Embedded full-text index over the product catalog with BM25 ranking.
+ *
+ * Name, description, color, category and subcategory are tokenized, stemmed
+ * and folded into one weighted term frequency per product (a matching name
+ * counts more than a matching description). Every query term must match; the
+ * last one is also treated as a prefix so results keep up with typing. The
+ * index is built from the {@link ProductCatalog} on first use and then updated
+ * per product from {@link ProductChangedEvent}s.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+
+    // Standard BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float CATEGORY_WEIGHT = 2f;
+    private static final float COLOR_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    // Cap on dictionary terms a trailing prefix may expand to
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it",
+            "of", "on", "or", "the", "to", "with");
+
+    private final ProductCatalog productCatalog;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (modelNo -> weighted term frequency); sorted so prefixes are a sub-map
+    private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, Map<String, Float>> documents = new HashMap<>();
+    private final Map<Long, Float> lengths = new HashMap<>();
+    private double totalLength;
+
+    private volatile boolean loaded;
+
+    public Page<Product> search(String query, Pageable pageable) {
+        List<Long> ranked = rank(query);
+        List<Product> content = new ArrayList<>();
+        int from = (int) Math.min(pageable.getOffset(), ranked.size());
+        int to = Math.min(from + pageable.getPageSize(), ranked.size());
+        for (Long modelNo : ranked.subList(from, to)) {
+            productCatalog.findByModelNo(modelNo).ifPresent(content::add);
+        }
+        return new PageImpl<>(content, pageable, ranked.size());
+    }
+
+    // Matching modelNos, best match first
+    private List<Long> rank(String query) {
+        List<String> raw = tokenize(query);
+        if (raw.isEmpty()) {
+            return Collections.emptyList();
+        }
+        ensureLoaded();
+
+        lock.readLock().lock();
+        try {
+            int n = documents.size();
+            double avgLength = n == 0 ? 0 : totalLength / n;
+            Map<Long, Double> scores = null;
+            for (int i = 0; i < raw.size(); i++) {
+                boolean last = i == raw.size() - 1;
+                Map<Long, Double> slot = new HashMap<>();
+                for (String term : expand(raw.get(i), last)) {
+                    Map<Long, Float> posting = postings.get(term);
+                    double idf = Math.log(1 + (n - posting.size() + 0.5) / (posting.size() + 0.5));
+                    for (Map.Entry<Long, Float> hit : posting.entrySet()) {
+                        double tf = hit.getValue();
+                        double norm = K1 * (1 - B + B * lengths.get(hit.getKey()) / avgLength);
+                        slot.merge(hit.getKey(), idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+                    }
+                }
+                if (scores == null) {
+                    scores = slot;
+                } else {
+                    // Every query term has to match
+                    scores.keySet().retainAll(slot.keySet());
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        entry.setValue(entry.getValue() + slot.get(entry.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+            List<Map.Entry<Long, Double>> hits = new ArrayList<>(scores.entrySet());
+            hits.sort(Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+            List<Long> ranked = new ArrayList<>(hits.size());
+            for (Map.Entry<Long, Double> hit : hits) {
+                ranked.add(hit.getKey());
+            }
+            return ranked;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Dictionary terms a query token matches; callers hold the read lock
+    private Set<String> expand(String token, boolean prefix) {
+        Set<String> terms = new LinkedHashSet<>();
+        String stemmed = stem(token);
+        if (postings.containsKey(stemmed)) {
+            terms.add(stemmed);
+        }
+        if (prefix) {
+            for (String term : postings.subMap(token, true, token + Character.MAX_VALUE, false).keySet()) {
+                if (terms.size() >= MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    // ===================== Maintenance =====================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            unindex(event.getModelNo());
+            if (!event.isDeleted()) {
+                index(event.getProduct());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                for (Product product : productCatalog.values()) {
+                    index(product);
+                }
+                loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Callers hold the write lock
+    private void index(Product product) {
+        Map<String, Float> terms = new HashMap<>();
+        float length = 0;
+        length += addField(terms, product.getName(), NAME_WEIGHT);
+        length += addField(terms, product.getDescription(), DESCRIPTION_WEIGHT);
+        length += addField(terms, product.getColor(), COLOR_WEIGHT);
+        length += addField(terms, product.getCategory() == null ? null : product.getCategory().name(), CATEGORY_WEIGHT);
+        length += addField(terms, product.getSubCategory() == null ? null : product.getSubCategory().name(), CATEGORY_WEIGHT);
+        if (terms.isEmpty()) {
+            return;
+        }
+        long modelNo = product.getModelNo();
+        for (Map.Entry<String, Float> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), t -> new HashMap<>()).put(modelNo, term.getValue());
+        }
+        documents.put(modelNo, terms);
+        lengths.put(modelNo, length);
+        totalLength += length;
+    }
+
+    // Callers hold the write lock
+    private void unindex(long modelNo) {
+        Map<String, Float> terms = documents.remove(modelNo);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<Long, Float> posting = postings.get(term);
+            posting.remove(modelNo);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= lengths.remove(modelNo);
+    }
+
+    private static float addField(Map<String, Float> terms, String text, float weight) {
+        float length = 0;
+        for (String token : tokenize(text)) {
+            terms.merge(stem(token), weight, Float::sum);
+            length += weight;
+        }
+        return length;
+    }
+
+    // ===================== Analysis =====================
+
+    private static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Light English suffix stripping, enough to fold plurals and verb forms together
+    static String stem(String token) {
+        if (token.length() <= 3 || !Character.isLetter(token.charAt(token.length() - 1))) {
+            return token;
+        }
+        if (token.endsWith("sses")) {
+            return token.substring(0, token.length() - 2);
+        }
+        if (token.endsWith("ies")) {
+            return token.substring(0, token.length() - 3) + "y";
+        }
+        if (token.endsWith("ing") && token.length() > 5) {
+            return undouble(token.substring(0, token.length() - 3));
+        }
+        if (token.endsWith("ed") && token.length() > 4) {
+            return undouble(token.substring(0, token.length() - 2));
+        }
+        if (token.endsWith("s") && !token.endsWith("ss") && !token.endsWith("us")) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+
+    // "running" -> "runn" -> "run"
+    private static String undouble(String stem) {
+        int n = stem.length();
+        if (n > 2 && stem.charAt(n - 1) == stem.charAt(n - 2) && "lsz".indexOf(stem.charAt(n - 1)) < 0) {
+            return stem.substring(0, n - 1);
+        }
+        return stem;
+    }
+}
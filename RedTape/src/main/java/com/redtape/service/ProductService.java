@@ -1,29 +1,35 @@
 package com.redtape.service;
 
+import com.redtape.dto.CursorPage;
 import com.redtape.entity.Category;
 import com.redtape.entity.Product;
 import com.redtape.entity.SubCategory;
 import com.redtape.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final ProductCatalog productCatalog;
+    private final ProductFilterIndex productFilterIndex;
+    private final ProductSuggestionIndex productSuggestionIndex;
+    private final ProductSearchIndex productSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     // ===================== Create or Update =====================
 
     public Product addProduct(Product product) {
         validateProduct(product);
-        return productRepository.save(product);
+        return publishSaved(productRepository.save(product));
     }
 
     public Optional<Product> updateProduct(Long modelNo, Product updatedProduct) {
@@ -42,7 +48,7 @@ public class ProductService {
             existingProduct.setImg3(updatedProduct.getImg3());
             existingProduct.setImg4(updatedProduct.getImg4());
             existingProduct.setImg5(updatedProduct.getImg5());
-            return productRepository.save(existingProduct);
+            return publishSaved(productRepository.save(existingProduct));
         });
     }
 
@@ -52,39 +58,68 @@ public class ProductService {
         return productRepository.findAll(pageable);
     }
 
+    // Keyset pagination by modelNo; deep pages cost the same as the first and skip COUNT(*)
+    public CursorPage<Product> getProductsAfter(String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        long after = cursor == null || cursor.isEmpty() ? Long.MIN_VALUE : KeysetCursor.decode(cursor, 1)[0];
+        List<Product> rows = productCatalog.findAfter(after, size + 1);
+        boolean hasNext = rows.size() > size;
+        List<Product> items = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? KeysetCursor.encode(items.get(items.size() - 1).getModelNo()) : null;
+        return new CursorPage<>(items, nextCursor, hasNext);
+    }
+
     public List<Product> getAllProducts() {
-        return productRepository.findAll();
+        return productCatalog.findAll();
     }
 
     public Optional<Product> getProductByModelNo(Long modelNo) {
-        return productRepository.findById(modelNo);
+        return productCatalog.findByModelNo(modelNo);
     }
 
-    public List<Product> searchProductsByName(String name) {
-        return productRepository.findByNameContainingIgnoreCase(name);
+    // Full-text search over name, description, color and categories, best match first
+    public Page<Product> searchProductsByName(String query, Pageable pageable) {
+        return productSearchIndex.search(query, pageable);
     }
 
     public List<Product> getProductsByCategory(Category category) {
-        return productRepository.findByCategory(category);
+        return productFilterIndex.search(category, null, null, null, null, null);
     }
 
     public List<Product> getProductsBySubCategory(SubCategory subCategory) {
-        return productRepository.findBySubCategory(subCategory);
+        return productFilterIndex.search(null, subCategory, null, null, null, null);
+    }
+
+    public List<Product> getProductsByCategoryAndSubCategory(Category category, SubCategory subCategory) {
+        return productFilterIndex.search(category, subCategory, null, null, null, null);
     }
 
     public List<Product> getProductsByColor(String color) {
-        return productRepository.findByColorIgnoreCase(color);
+        return productFilterIndex.search(null, null, null, null, color, null);
     }
 
     public List<Product> getProductsByPriceRange(double minPrice, double maxPrice) {
         if (minPrice > maxPrice) {
             throw new IllegalArgumentException("Minimum price cannot be greater than maximum price.");
         }
-        return productRepository.findByPriceBetween(minPrice, maxPrice);
+        return productFilterIndex.search(null, null, minPrice, maxPrice, null, null);
     }
 
     public List<Product> getProductsByMinQuantity(int minQuantity) {
-        return productRepository.findByQuantityGreaterThanEqual(minQuantity);
+        return productFilterIndex.search(null, null, null, null, null, minQuantity);
+    }
+
+    // Combined filter; any argument left null is not applied
+    public List<Product> searchProducts(Category category, SubCategory subCategory, Double minPrice,
+                                        Double maxPrice, String color, Integer minQuantity) {
+        return productFilterIndex.search(category, subCategory, minPrice, maxPrice, color, minQuantity);
+    }
+
+    public Page<Product> searchProducts(Category category, SubCategory subCategory, Double minPrice,
+                                        Double maxPrice, String color, Integer minQuantity, Pageable pageable) {
+        return productFilterIndex.search(category, subCategory, minPrice, maxPrice, color, minQuantity, pageable);
     }
 
     // ===================== Delete =====================
@@ -94,11 +129,19 @@ public class ProductService {
             throw new RuntimeException("Product not found with modelNo: " + modelNo);
         }
         productRepository.deleteById(modelNo);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(modelNo));
+    }
+
+    // ===================== Change notification =====================
+
+    private Product publishSaved(Product product) {
+        eventPublisher.publishEvent(ProductChangedEvent.saved(product));
+        return product;
     }
 
     // ===================== Validation =====================
 
-    private void validateProduct(Product product) {
+    static void validateProduct(Product product) {
         if (product.getName() == null || product.getName().trim().isEmpty()) {
             throw new IllegalArgumentException("Product name must not be empty.");
         }
@@ -110,10 +153,6 @@ public class ProductService {
         }
     }
 
-	public List<Product> addProducts(List<Product> products) {
-		return productRepository.saveAll(products);
-	}
-
 	public Optional<Object> updateProductImages(Long modelNo, Product request) {
 		 return productRepository.findById(modelNo).map(product -> {
 		        product.setImg1(request.getImg1());
@@ -121,15 +160,13 @@ public class ProductService {
 		        product.setImg3(request.getImg3());
 		        product.setImg4(request.getImg4());
 		        product.setImg5(request.getImg5());
-		        return productRepository.save(product);
+		        return publishSaved(productRepository.save(product));
 		    });
 	}
 	
+	// Top 10 names containing the query, most ordered first
 	public List<String> getProductNameSuggestions(String query) {
-	    return productRepository.findTop10ByNameContainingIgnoreCase(query)
-	                     .stream()
-	                     .map(Product::getName)
-	                     .collect(Collectors.toList());
+	    return productSuggestionIndex.suggest(query, 10);
 	}
 
 }
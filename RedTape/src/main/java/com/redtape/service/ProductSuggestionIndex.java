@@ -0,0 +1,197 @@
+package com.redtape.service;
+
+import com.redtape.entity.OrderItem;
+import com.redtape.entity.Product;
+import com.redtape.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * N-gram index over product names backing the search box autocomplete.
+ *
+ * Every lowercased name is broken into all of its 1-, 2- and 3-character
+ * grams. A query of up to three characters is a single posting lookup; longer
+ * queries scan the smallest posting among their trigrams and confirm the
+ * substring match. Candidates are ranked by how often the product has been
+ * ordered. The index follows product writes and new orders through events.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductSuggestionIndex {
+
+    private static final int MAX_GRAM = 3;
+
+    private final ProductCatalog productCatalog;
+    private final OrderRepository orderRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final Map<Long, String> names = new HashMap<>();
+
+    // Order lines per product; read without the lock while ranking
+    private final Map<Long, Long> popularity = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    public List<String> suggest(String query, int limit) {
+        String needle = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        if (needle.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        ensureLoaded();
+
+        // Best popularity per distinct display name (colors of one shoe share a name)
+        Map<String, Long> candidates = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (Long modelNo : lookup(needle)) {
+                String name = names.get(modelNo);
+                if (name != null && name.toLowerCase(Locale.ROOT).contains(needle)) {
+                    candidates.merge(name, popularity.getOrDefault(modelNo, 0L), Math::max);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Comparator<Map.Entry<String, Long>> ranking = Map.Entry.<String, Long>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder()));
+        PriorityQueue<Map.Entry<String, Long>> top = new PriorityQueue<>(limit + 1, ranking);
+        for (Map.Entry<String, Long> candidate : candidates.entrySet()) {
+            top.offer(candidate);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<String> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(top.poll().getKey());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    // ===================== Maintenance =====================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                // The initial load reads the committed state anyway
+                return;
+            }
+            unindex(event.getModelNo());
+            if (!event.isDeleted()) {
+                index(event.getProduct());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        if (!loaded || event.getOrder().getItems() == null) {
+            return;
+        }
+        for (OrderItem item : event.getOrder().getItems()) {
+            if (item.getProduct() != null) {
+                popularity.merge(item.getProduct().getModelNo(), 1L, Long::sum);
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                for (Object[] row : orderRepository.countOrderItemsByProduct()) {
+                    popularity.put((Long) row[0], (Long) row[1]);
+                }
+                for (Product product : productCatalog.values()) {
+                    index(product);
+                }
+                loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Callers hold the read lock
+    private Set<Long> lookup(String needle) {
+        if (needle.length() <= MAX_GRAM) {
+            return postings.getOrDefault(needle, Collections.emptySet());
+        }
+        Set<Long> smallest = null;
+        for (int i = 0; i + MAX_GRAM <= needle.length(); i++) {
+            Set<Long> posting = postings.get(needle.substring(i, i + MAX_GRAM));
+            if (posting == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        // The substring check in suggest() filters out the false positives
+        return smallest;
+    }
+
+    // Callers hold the write lock
+    private void index(Product product) {
+        if (product.getName() == null) {
+            return;
+        }
+        names.put(product.getModelNo(), product.getName());
+        for (String gram : grams(product.getName())) {
+            postings.computeIfAbsent(gram, g -> new HashSet<>()).add(product.getModelNo());
+        }
+    }
+
+    // Callers hold the write lock
+    private void unindex(long modelNo) {
+        String name = names.remove(modelNo);
+        if (name == null) {
+            return;
+        }
+        for (String gram : grams(name)) {
+            Set<Long> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(modelNo);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(String name) {
+        String text = name.toLowerCase(Locale.ROOT);
+        Set<String> grams = new HashSet<>();
+        for (int n = 1; n <= MAX_GRAM; n++) {
+            for (int i = 0; i + n <= text.length(); i++) {
+                grams.add(text.substring(i, i + n));
+            }
+        }
+        return grams;
+    }
+}
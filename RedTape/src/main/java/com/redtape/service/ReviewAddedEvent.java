@@ -0,0 +1,15 @@
+package com.redtape.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published by {@link UserReviewService} when a review is saved.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ReviewAddedEvent {
+
+    private final long modelNo;
+    private final int rating;
+}
@@ -0,0 +1,53 @@
+package com.redtape.service;
+
+import com.redtape.repository.UserReviewRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory set of (user, product) pairs that already have a review, saved or
+ * still queued. Lets duplicates be turned away without a query; the unique
+ * constraint on user_review remains the final word. Loaded from the reviews
+ * table on first use.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReviewDedupIndex {
+
+    private final UserReviewRepository reviewRepository;
+
+    private final Set<Pair> pairs = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean loaded;
+
+    // True if the pair was free and is now taken by the caller
+    public boolean claim(long userId, long modelNo) {
+        ensureLoaded();
+        return pairs.add(new Pair(userId, modelNo));
+    }
+
+    // Gives a pair back when its review was rejected or could not be saved
+    public void release(long userId, long modelNo) {
+        pairs.remove(new Pair(userId, modelNo));
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                for (Object[] row : reviewRepository.findAllUserProductPairs()) {
+                    pairs.add(new Pair(((Number) row[0]).longValue(), ((Number) row[1]).longValue()));
+                }
+                loaded = true;
+            }
+        }
+    }
+
+    private record Pair(long userId, long modelNo) {
+    }
+}
@@ -0,0 +1,268 @@
+package com.redtape.service;
+
+import com.redtape.dto.ReviewRequest;
+import com.redtape.entity.Product;
+import com.redtape.entity.User;
+import com.redtape.entity.UserReview;
+import com.redtape.repository.UserRepository;
+import com.redtape.repository.UserReviewRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous review ingestion.
+ *
+ * A submitted review is checked for the basics, claimed in the
+ * {@link ReviewDedupIndex} and queued; the caller does not wait for the
+ * database. A single worker drains the queue, moderates each review (the
+ * product and user must exist, and the comment must not contain a blocked
+ * word) and saves the accepted ones in one transaction per batch, together
+ * with their products' rating totals. The queue is bounded, and one worker
+ * means a burst of reviews holds at most one database connection. Reviews
+ * still queued at shutdown are saved first; a crash loses them.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReviewIngestionService {
+
+    private final ReviewDedupIndex dedupIndex;
+    private final ProductCatalog productCatalog;
+    private final ProductRatingService productRatingService;
+    private final UserRepository userRepository;
+    private final UserReviewRepository reviewRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${redtape.reviews.queue-capacity:5000}")
+    private int queueCapacity;
+
+    @Value("${redtape.reviews.batch-size:100}")
+    private int batchSize;
+
+    @Value("${redtape.reviews.blocked-words:}")
+    private List<String> blockedWords;
+
+    private BlockingQueue<Pending> queue;
+    private Thread worker;
+    private volatile boolean running;
+
+    @PostConstruct
+    void open() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        // Reviews used IDENTITY keys before
+        Sequences.alignPast(jdbcTemplate, "user_review_seq", "user_review", 50);
+    }
+
+    /**
+     * Queues a review for moderation and saving.
+     *
+     * @throws IllegalArgumentException if the request is malformed
+     * @throws DuplicateReviewException if the user already reviewed the product
+     * @throws ReviewQueueFullException if the queue is full
+     */
+    public void submit(ReviewRequest request) {
+        validate(request);
+        long userId = request.getUserId();
+        long modelNo = request.getModelNo();
+        if (!dedupIndex.claim(userId, modelNo)) {
+            throw new DuplicateReviewException(userId, modelNo);
+        }
+        if (!queue.offer(new Pending(request, LocalDateTime.now()))) {
+            dedupIndex.release(userId, modelNo);
+            throw new ReviewQueueFullException();
+        }
+    }
+
+    static void validate(ReviewRequest request) {
+        if (request.getUserId() == null || request.getModelNo() == null) {
+            throw new IllegalArgumentException("userId and modelNo are required");
+        }
+        if (request.getRating() < 1 || request.getRating() > 5) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
+        if (request.getComment() != null && request.getComment().length() > 1000) {
+            throw new IllegalArgumentException("Comment must be at most 1000 characters");
+        }
+    }
+
+    // ===================== Worker =====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        worker = new Thread(this::drain, "review-ingestion");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Pending> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                save(moderate(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Review ingestion failed", e);
+            }
+        }
+    }
+
+    // Drops (and un-claims) reviews that fail moderation
+    private List<Pending> moderate(List<Pending> batch) {
+        Set<Long> userIds = new HashSet<>();
+        for (Pending pending : batch) {
+            userIds.add(pending.request.getUserId());
+        }
+        Set<Long> knownUsers = new HashSet<>();
+        for (User user : userRepository.findAllById(userIds)) {
+            knownUsers.add(user.getId());
+        }
+
+        List<Pending> accepted = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            String reason = null;
+            if (!knownUsers.contains(pending.request.getUserId())) {
+                reason = "unknown user";
+            } else if (productCatalog.findByModelNo(pending.request.getModelNo()).isEmpty()) {
+                reason = "unknown product";
+            } else if (containsBlockedWord(pending.request.getComment())) {
+                reason = "blocked word in comment";
+            }
+            if (reason == null) {
+                accepted.add(pending);
+            } else {
+                log.info("Rejected review by user {} for product {}: {}",
+                        pending.request.getUserId(), pending.request.getModelNo(), reason);
+                release(pending);
+            }
+        }
+        return accepted;
+    }
+
+    private boolean containsBlockedWord(String comment) {
+        if (comment == null || blockedWords.isEmpty()) {
+            return false;
+        }
+        String lower = comment.toLowerCase(Locale.ROOT);
+        for (String word : blockedWords) {
+            if (!word.isBlank() && lower.contains(word.trim().toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // One transaction for the batch; if it fails, each review is tried alone
+    private void save(List<Pending> accepted) {
+        if (accepted.isEmpty()) {
+            return;
+        }
+        try {
+            persist(accepted);
+            return;
+        } catch (RuntimeException e) {
+            if (accepted.size() > 1) {
+                log.warn("Review batch of {} failed, saving reviews one by one", accepted.size(), e);
+            }
+        }
+        for (Pending pending : accepted) {
+            try {
+                persist(List.of(pending));
+            } catch (DataIntegrityViolationException e) {
+                if (reviewRepository.existsByUser_IdAndProduct_ModelNo(pending.request.getUserId(), pending.request.getModelNo())) {
+                    // Already in the table (another node); the pair stays claimed
+                    log.info("Dropped duplicate review by user {} for product {}",
+                            pending.request.getUserId(), pending.request.getModelNo());
+                } else {
+                    log.error("Could not save review by user {} for product {}",
+                            pending.request.getUserId(), pending.request.getModelNo(), e);
+                    release(pending);
+                }
+            } catch (RuntimeException e) {
+                log.error("Could not save review by user {} for product {}",
+                        pending.request.getUserId(), pending.request.getModelNo(), e);
+                release(pending);
+            }
+        }
+    }
+
+    private void persist(List<Pending> pendings) {
+        List<UserReview> reviews = new ArrayList<>(pendings.size());
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Pending pending : pendings) {
+                UserReview review = toReview(pending);
+                entityManager.persist(review);
+                reviews.add(review);
+            }
+            entityManager.flush();
+            productRatingService.recordReviews(reviews);
+            for (UserReview review : reviews) {
+                // Delivered after commit; refreshes the cached rating
+                eventPublisher.publishEvent(new ReviewAddedEvent(review.getProduct().getModelNo(), review.getRating()));
+            }
+            entityManager.clear();
+        });
+    }
+
+    private UserReview toReview(Pending pending) {
+        UserReview review = new UserReview();
+        review.setUser(entityManager.getReference(User.class, pending.request.getUserId()));
+        review.setProduct(entityManager.getReference(Product.class, pending.request.getModelNo()));
+        review.setRating(pending.request.getRating());
+        review.setComment(pending.request.getComment());
+        review.setReviewDate(pending.submittedAt);
+        return review;
+    }
+
+    private void release(Pending pending) {
+        dedupIndex.release(pending.request.getUserId(), pending.request.getModelNo());
+    }
+
+    @PreDestroy
+    public void stop() {
+        // The worker keeps going until the queue is empty
+        running = false;
+        if (worker != null) {
+            try {
+                worker.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private record Pending(ReviewRequest request, LocalDateTime submittedAt) {
+    }
+}
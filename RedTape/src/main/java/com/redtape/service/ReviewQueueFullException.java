@@ -0,0 +1,11 @@
+package com.redtape.service;
+
+/**
+ * Thrown when the review queue is full and the review was not accepted.
+ */
+public class ReviewQueueFullException extends RuntimeException {
+
+    public ReviewQueueFullException() {
+        super("Review queue is full, try again shortly");
+    }
+}
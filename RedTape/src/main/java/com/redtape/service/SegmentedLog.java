@@ -0,0 +1,145 @@
+package com.redtape.service;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Local append-only log of single-line records, split into numbered segments.
+ *
+ * Writers append to the current segment; whoever drains the log rotates to a
+ * fresh segment and deletes the older ones once their records are safely
+ * stored elsewhere. Whatever is left on disk at startup can be replayed.
+ */
+public class SegmentedLog {
+
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final String prefix;
+    private final boolean fsync;
+
+    private FileOutputStream current;
+    private long currentSegment;
+    private boolean currentEmpty = true;
+
+    public SegmentedLog(Path directory, String prefix, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+        List<Long> existing = segments();
+        currentSegment = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+        current = open(currentSegment);
+    }
+
+    // Returns the number of the segment the record went into
+    public synchronized long append(String record) {
+        try {
+            current.write((record + "\n").getBytes(StandardCharsets.UTF_8));
+            current.flush();
+            currentEmpty = false;
+            if (fsync) {
+                current.getFD().sync();
+            }
+            return currentSegment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + directory, e);
+        }
+    }
+
+    /**
+     * Starts a new segment and returns the number of the one that was closed.
+     * Every record appended before this call is in that segment or an older one.
+     */
+    public synchronized long rotate() {
+        if (currentEmpty) {
+            // Nothing to seal; avoid leaving a trail of empty files behind
+            return currentSegment - 1;
+        }
+        try {
+            current.close();
+            long closed = currentSegment;
+            currentSegment++;
+            current = open(currentSegment);
+            currentEmpty = true;
+            return closed;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rotate " + directory, e);
+        }
+    }
+
+    // Removes every segment up to and including the given one
+    public void deleteThrough(long segment) {
+        for (long number : segments()) {
+            if (number <= segment) {
+                try {
+                    Files.deleteIfExists(path(number));
+                } catch (IOException e) {
+                    // Left on disk it is simply replayed again, which is harmless
+                }
+            }
+        }
+    }
+
+    /**
+     * Feeds every record of the closed segments to the consumer, oldest first,
+     * and returns the number of the newest segment that was read.
+     */
+    public long replay(Consumer<String> consumer) {
+        long active;
+        synchronized (this) {
+            active = currentSegment;
+        }
+        for (long number : segments()) {
+            if (number >= active) {
+                break;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(path(number), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        consumer.accept(line);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not replay segment " + number + " of " + directory, e);
+            }
+        }
+        return active - 1;
+    }
+
+    public synchronized void close() throws IOException {
+        current.close();
+    }
+
+    private List<Long> segments() {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(SUFFIX))
+                    .forEach(name -> numbers.add(Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length()))));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list " + directory, e);
+        }
+        numbers.sort(Comparator.naturalOrder());
+        return numbers;
+    }
+
+    private FileOutputStream open(long segment) throws IOException {
+        return new FileOutputStream(path(segment).toFile(), true);
+    }
+
+    private Path path(long segment) {
+        return directory.resolve(prefix + segment + SUFFIX);
+    }
+}
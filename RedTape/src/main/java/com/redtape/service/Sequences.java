@@ -0,0 +1,22 @@
+package com.redtape.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Helpers for the table-backed pooled sequences Hibernate uses on MySQL.
+ */
+final class Sequences {
+
+    private Sequences() {
+    }
+
+    /**
+     * Moves the sequence past every id already in the table. Needed when an
+     * entity switches from IDENTITY keys to a pooled sequence, which would
+     * otherwise start handing out ids that are taken.
+     */
+    static void alignPast(JdbcTemplate jdbcTemplate, String sequence, String table, int allocationSize) {
+        jdbcTemplate.update("UPDATE " + sequence + " SET next_val = GREATEST(next_val, "
+                + "(SELECT COALESCE(MAX(id), 0) + " + (allocationSize + 1) + " FROM " + table + "))");
+    }
+}
@@ -0,0 +1,32 @@
+package com.redtape.service;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed pool of locks shared out by key hash.
+ *
+ * Operations on the same key always serialize, operations on different keys
+ * only contend when they land on the same stripe, and memory stays constant
+ * no matter how many keys are seen.
+ */
+public class StripedLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public StripedLocks(int minimumStripes) {
+        int size = Integer.highestOneBit(Math.max(1, minimumStripes - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public ReentrantLock forKey(Object key) {
+        int h = key.hashCode();
+        // Spread the high bits down so similar keys don't pile onto one stripe
+        h ^= (h >>> 16);
+        return stripes[h & mask];
+    }
+}
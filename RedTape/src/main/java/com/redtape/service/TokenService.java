@@ -0,0 +1,159 @@
+package com.redtape.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redtape.entity.Role;
+import com.redtape.entity.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stateless session tokens.
+ *
+ * A token is {@code base64url(claims).base64url(HMAC-SHA256(claims))}, where
+ * the claims carry the user's id, email and role, so checking a request needs
+ * one HMAC and no database query. Logging out revokes a single token, and a
+ * password change revokes every token the user was issued before it. Both
+ * revocation lists are kept in memory only until the affected tokens would
+ * have expired anyway. They are node-local: with several nodes, a revoked
+ * token still works on the other nodes until it expires, so keep
+ * {@code redtape.token.ttl-ms} short.
+ */
+@Slf4j
+@Service
+public class TokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final ObjectMapper objectMapper;
+    private final SecretKeySpec key;
+    private final long ttlMillis;
+
+    // Mac instances are not thread-safe and costly to create
+    private final ThreadLocal<Mac> macs;
+
+    // tokenId -> expiry of the revoked token
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    // userId -> tokens issued before this instant are revoked
+    private final Map<Long, Long> revokedBefore = new ConcurrentHashMap<>();
+
+    public TokenService(ObjectMapper objectMapper,
+                        @Value("${redtape.token.secret:}") String secret,
+                        @Value("${redtape.token.ttl-ms:3600000}") long ttlMillis) {
+        this.objectMapper = objectMapper;
+        this.ttlMillis = ttlMillis;
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            log.warn("redtape.token.secret is not set; using a random key, so tokens will not survive a restart "
+                    + "or work across nodes");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = Base64.getDecoder().decode(secret.trim());
+            if (keyBytes.length < 32) {
+                throw new IllegalStateException("redtape.token.secret must decode to at least 32 bytes");
+            }
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC-SHA256 is not available", e);
+            }
+        });
+    }
+
+    public String issue(User user) {
+        long now = System.currentTimeMillis();
+        Claims claims = new Claims(user.getId(), user.getEmail(), roleOf(user.getRole()), now, now + ttlMillis,
+                UUID.randomUUID().toString());
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(claims);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not write token claims", e);
+        }
+        String body = ENCODER.encodeToString(payload);
+        return body + "." + ENCODER.encodeToString(sign(body));
+    }
+
+    // Empty if the token is malformed, forged, expired or revoked
+    public Optional<AuthenticatedUser> verify(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return Optional.empty();
+        }
+        String body = token.substring(0, dot);
+        Claims claims;
+        try {
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(signature, sign(body))) {
+                return Optional.empty();
+            }
+            claims = objectMapper.readValue(DECODER.decode(body), Claims.class);
+        } catch (IllegalArgumentException | IOException e) {
+            return Optional.empty();
+        }
+        if (claims.exp <= System.currentTimeMillis() || revokedTokens.containsKey(claims.jti)) {
+            return Optional.empty();
+        }
+        Long notBefore = revokedBefore.get(claims.sub);
+        if (notBefore != null && claims.iat < notBefore) {
+            return Optional.empty();
+        }
+        return Optional.of(new AuthenticatedUser(claims.sub, claims.email, roleOf(claims.role), claims.jti, claims.exp));
+    }
+
+    // Accounts saved without a role are plain users, as createUser would have made them
+    private static Role roleOf(Role role) {
+        return role == null ? Role.USER : role;
+    }
+
+    public void revoke(AuthenticatedUser user) {
+        revokedTokens.put(user.tokenId(), user.expiresAt());
+    }
+
+    // Every token issued to the user up to now stops working
+    public void revokeAll(long userId) {
+        revokedBefore.put(userId, System.currentTimeMillis() + 1);
+    }
+
+    @Scheduled(fixedDelayString = "${redtape.token.purge-interval-ms:300000}")
+    public void purgeRevocations() {
+        long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        // Anything issued before this cut-off has expired by now
+        revokedBefore.values().removeIf(cutoff -> cutoff + ttlMillis <= now);
+    }
+
+    private byte[] sign(String body) {
+        return macs.get().doFinal(body.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // Short field names keep the token compact
+    private record Claims(long sub, String email, Role role, long iat, long exp, String jti) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.redtape.service;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a client IP or account has made too many password attempts
+ * in the current window.
+ */
+@Getter
+public class TooManyAttemptsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyAttemptsException(long retryAfterSeconds) {
+        super("Too many attempts, try again later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,201 @@
+package com.redtape.service;
+
+import com.redtape.dto.UserCacheStats;
+import com.redtape.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Near-cache of user profiles by email and by id.
+ *
+ * Both indexes are LRU maps capped at {@code redtape.users.cache-size}, and
+ * every entry expires after a TTL, which bounds how stale a profile changed
+ * on another node can be here. An email that does not exist is cached as a
+ * miss for a shorter TTL. Writes through {@link UserService} invalidate the
+ * user's entries on this node. Callers get copies, so changing a returned
+ * user never changes the cache.
+ */
+@Component
+public class UserCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final LongSupplier clock;
+
+    // Both guarded by this; access-ordered for LRU eviction
+    private final LinkedHashMap<String, Entry> byEmail;
+    private final LinkedHashMap<Long, Entry> byId;
+
+    // Bumped on every invalidation; a load that overlapped one is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserCache(@Value("${redtape.users.cache-size:10000}") int maxSize,
+                     @Value("${redtape.users.cache-ttl-ms:60000}") long ttlMillis,
+                     @Value("${redtape.users.negative-cache-ttl-ms:10000}") long negativeTtlMillis) {
+        this(maxSize, ttlMillis, negativeTtlMillis, System::currentTimeMillis);
+    }
+
+    // Lets tests drive time
+    UserCache(int maxSize, long ttlMillis, long negativeTtlMillis, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.clock = clock;
+        this.byEmail = lru();
+        this.byId = lru();
+    }
+
+    public Optional<User> getByEmail(String email, Supplier<Optional<User>> loader) {
+        if (email == null) {
+            return loader.get();
+        }
+        synchronized (this) {
+            Entry entry = live(byEmail, email);
+            if (entry != null) {
+                return hit(entry);
+            }
+        }
+        return load(loader, email);
+    }
+
+    public Optional<User> getById(long id, Supplier<Optional<User>> loader) {
+        synchronized (this) {
+            Entry entry = live(byId, id);
+            if (entry != null) {
+                return hit(entry);
+            }
+        }
+        // Unknown ids are not cached; nothing looks them up repeatedly
+        return load(loader, null);
+    }
+
+    private Optional<User> load(Supplier<Optional<User>> loader, String email) {
+        misses.incrementAndGet();
+        long before = generation.get();
+        Optional<User> loaded = loader.get();
+        synchronized (this) {
+            if (generation.get() == before) {
+                long now = clock.getAsLong();
+                if (loaded.isPresent()) {
+                    User user = loaded.get();
+                    Entry entry = new Entry(copy(user), now + ttlMillis);
+                    if (user.getEmail() != null) {
+                        byEmail.put(user.getEmail(), entry);
+                    }
+                    byId.put(user.getId(), entry);
+                } else if (email != null) {
+                    byEmail.put(email, new Entry(null, now + negativeTtlMillis));
+                }
+            }
+        }
+        return loaded.map(UserCache::copy);
+    }
+
+    /**
+     * Drops everything cached for the user with this id and for these
+     * emails (pass the old email as well when it changed).
+     */
+    public synchronized void invalidate(Long id, String... emails) {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        if (id != null) {
+            Entry entry = byId.remove(id);
+            if (entry != null && entry.user != null && entry.user.getEmail() != null) {
+                byEmail.remove(entry.user.getEmail());
+            }
+        }
+        for (String email : emails) {
+            if (email != null) {
+                Entry entry = byEmail.remove(email);
+                if (entry != null && entry.user != null) {
+                    byId.remove(entry.user.getId());
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        byEmail.clear();
+        byId.clear();
+    }
+
+    public UserCacheStats stats() {
+        long h = hits.get();
+        long n = negativeHits.get();
+        long m = misses.get();
+        long total = h + n + m;
+        int size;
+        synchronized (this) {
+            size = byId.size();
+        }
+        return new UserCacheStats(h, n, m, evictions.get(), invalidations.get(), size,
+                total == 0 ? 0 : (double) (h + n) / total);
+    }
+
+    // Callers hold this; drops the entry if it has expired
+    private <K> Entry live(Map<K, Entry> index, K key) {
+        Entry entry = index.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= clock.getAsLong()) {
+            index.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private Optional<User> hit(Entry entry) {
+        if (entry.user == null) {
+            negativeHits.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(copy(entry.user));
+    }
+
+    private <K> LinkedHashMap<K, Entry> lru() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private static User copy(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setName(user.getName());
+        copy.setEmail(user.getEmail());
+        copy.setMobile(user.getMobile());
+        copy.setPassword(user.getPassword());
+        copy.setGender(user.getGender());
+        copy.setRole(user.getRole());
+        return copy;
+    }
+
+    // user is null for a cached "no such email"
+    private record Entry(User user, long expiresAt) {
+    }
+}
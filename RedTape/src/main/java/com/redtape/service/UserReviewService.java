@@ -1,11 +1,18 @@
 package com.redtape.service;
 
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.redtape.dto.CursorPage;
 import com.redtape.entity.UserReview;
 import com.redtape.repository.UserReviewRepository;
 
@@ -16,6 +23,10 @@ import lombok.RequiredArgsConstructor;
 public class UserReviewService {
 
     private final UserReviewRepository reviewRepository;
+    private final ProductRatingService productRatingService;
+    private final ReviewDedupIndex dedupIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Fetch all reviews for a specific product.
@@ -38,6 +49,41 @@ public class UserReviewService {
         return reviewRepository.findByProduct_ModelNo(productId, pageable);
     }
 
+    /**
+     * Fetch reviews for a product newest first using keyset pagination.
+     * Unlike offset paging this costs the same at any depth and runs no count query.
+     *
+     * @param productId the product's modelNo (ID)
+     * @param cursor continuation token from the previous slice, or null for the first
+     * @param size maximum number of reviews to return, at least 1
+     * @return slice of reviews and the cursor for the next one
+     */
+    public CursorPage<UserReview> getReviewsForProduct(Long productId, String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<UserReview> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = reviewRepository.findFirstByProductNewestFirst(productId, limit);
+        } else {
+            long[] keys = KeysetCursor.decode(cursor, 3);
+            LocalDateTime reviewDate = LocalDateTime.ofEpochSecond(keys[0], (int) keys[1], ZoneOffset.UTC);
+            rows = reviewRepository.findByProductNewestFirstAfter(productId, reviewDate, keys[2], limit);
+        }
+
+        // One extra row tells us whether another slice exists
+        boolean hasNext = rows.size() > size;
+        List<UserReview> items = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            UserReview last = items.get(items.size() - 1);
+            nextCursor = KeysetCursor.encode(last.getReviewDate().toEpochSecond(ZoneOffset.UTC),
+                    last.getReviewDate().getNano(), last.getId());
+        }
+        return new CursorPage<>(items, nextCursor, hasNext);
+    }
+
     /**
      * Add a new user review.
      * 
@@ -45,6 +91,35 @@ public class UserReviewService {
      * @return saved UserReview entity
      */
     public UserReview addReview(UserReview review) {
-        return reviewRepository.save(review);
+        if (review.getProduct() == null || review.getUser() == null) {
+            throw new IllegalArgumentException("Review needs a user and a product");
+        }
+        if (review.getRating() < 1 || review.getRating() > 5) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
+        long userId = review.getUser().getId();
+        long modelNo = review.getProduct().getModelNo();
+        if (!dedupIndex.claim(userId, modelNo)) {
+            throw new DuplicateReviewException(userId, modelNo);
+        }
+        try {
+            return transactionTemplate.execute(status -> {
+                UserReview saved = reviewRepository.save(review);
+                // Same transaction, so the aggregate and the reviews table commit together
+                productRatingService.recordReviews(List.of(saved));
+                eventPublisher.publishEvent(new ReviewAddedEvent(modelNo, saved.getRating()));
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (reviewRepository.existsByUser_IdAndProduct_ModelNo(userId, modelNo)) {
+                // Reviewed through another node; keep the pair claimed
+                throw new DuplicateReviewException(userId, modelNo);
+            }
+            dedupIndex.release(userId, modelNo);
+            throw e;
+        } catch (RuntimeException e) {
+            dedupIndex.release(userId, modelNo);
+            throw e;
+        }
     }
 }
@@ -1,58 +1,232 @@
 package com.redtape.service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.stereotype.Service;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
+import com.redtape.dto.CursorPage;
+import com.redtape.dto.UserCacheStats;
+import com.redtape.dto.UserSummaryDTO;
 import com.redtape.entity.Role;
 import com.redtape.entity.User;
 import com.redtape.repository.UserRepository;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
+/**
+ * User accounts. Everything that hashes or checks a password goes through
+ * {@link PasswordHashingService}, which runs it on its own pool and applies
+ * the per-IP and per-account limits; {@code clientIp} is the caller's
+ * address for those limits.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserService 
 {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final TokenService tokenService;
+    private final UserCache userCache;
+    private final EntityManager entityManager;
     
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
 
-    public User createUser(User user) {
+    public User createUser(User user, String clientIp) {
     	if (user.getRole() == null) {
             user.setRole(Role.USER);  // Set default role here
         }
     	if (userRepository.getUserByEmail(user.getEmail()).isPresent()) {
             throw new RuntimeException("Email already exists");
         }
-    	user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+    	user.setPassword(PasswordHashingService.await(passwordHashingService.encode(user.getPassword(), clientIp)));
+        User saved = userRepository.save(user);
+        // Drops a cached "no such email"
+        userCache.invalidate(saved.getId(), saved.getEmail());
+        return saved;
     }
 
+    /**
+     * Copies name, email, role and (if given) a new password onto an
+     * existing user.
+     */
+    public Optional<User> updateUser(Long id, User updated, String clientIp) {
+        return userRepository.findById(id).map(user -> {
+            if (updated.getEmail() != null && !updated.getEmail().equals(user.getEmail())
+                    && userRepository.getUserByEmail(updated.getEmail()).isPresent()) {
+                throw new RuntimeException("Email already exists");
+            }
+            String oldEmail = user.getEmail();
+            // A request without a role keeps the current one
+            Role role = updated.getRole() == null ? user.getRole() : updated.getRole();
+            boolean identityChanged = !Objects.equals(oldEmail, updated.getEmail()) || user.getRole() != role;
+            boolean passwordChanged = updated.getPassword() != null && !updated.getPassword().isEmpty();
+            user.setName(updated.getName());
+            user.setEmail(updated.getEmail());
+            if (passwordChanged) {
+                user.setPassword(PasswordHashingService.await(passwordHashingService.encode(updated.getPassword(), clientIp)));
+            }
+            user.setRole(role);
+            User saved = userRepository.save(user);
+            userCache.invalidate(saved.getId(), oldEmail, saved.getEmail());
+            if (passwordChanged || identityChanged) {
+                // Outstanding tokens carry the old password's trust, email and role
+                tokenService.revokeAll(saved.getId());
+            }
+            return saved;
+        });
+    }
+
+    /**
+     * Sets a new password on the user with this id and signs them out
+     * everywhere. Only the password column is written, so name, email, role
+     * or mobile changes made elsewhere in the meantime are kept.
+     *
+     * @return false if there is no such user
+     */
+    public boolean changePassword(long id, String newPassword, String clientIp) {
+        String hash = PasswordHashingService.await(passwordHashingService.encode(newPassword, clientIp));
+        if (userRepository.setPassword(id, hash) == 0) {
+            return false;
+        }
+        userCache.invalidate(id);
+        tokenService.revokeAll(id);
+        return true;
+    }
+
+    /**
+     * Checks a login without holding the calling thread: the result completes
+     * on the hashing pool with the user, or empty if the email or password is
+     * wrong. A hash made with an outdated encoder or cost is replaced with a
+     * fresh one after a successful check.
+     *
+     * @throws TooManyAttemptsException if the client IP or the account is over its limit
+     * @throws PasswordHashingBusyException if the hashing queue is full
+     */
+    public CompletableFuture<Optional<User>> authenticate(String email, String password, String clientIp) {
+        Optional<User> found = email == null ? Optional.empty() : userRepository.getUserByEmail(email);
+        String hash = found.map(User::getPassword).orElse(null);
+        String raw = password == null ? "" : password;
+        return passwordHashingService.matches(raw, hash, clientIp, email).thenApply(matched -> {
+            if (!matched) {
+                return Optional.empty();
+            }
+            User user = found.get();
+            if (passwordHashingService.needsRehash(hash)) {
+                upgradeHash(user, raw, hash);
+            }
+            return Optional.of(user);
+        });
+    }
+
+    // Best effort; the login has already succeeded
+    private void upgradeHash(User user, String raw, String oldHash) {
+        CompletableFuture<String> rehashed;
+        try {
+            rehashed = passwordHashingService.rehash(raw);
+        } catch (PasswordHashingBusyException e) {
+            // The hash is still valid; the next login tries again
+            log.debug("Hashing pool busy, not upgrading password hash for user {} now", user.getId());
+            return;
+        }
+        rehashed.thenAccept(newHash -> {
+            // Conditional, so a password changed in the meantime is left alone
+            if (userRepository.replacePassword(user.getId(), oldHash, newHash) == 1) {
+                userCache.invalidate(user.getId());
+            }
+        }).exceptionally(e -> {
+            log.warn("Could not upgrade password hash for user {}", user.getId(), e);
+            return null;
+        });
+    }
+
+    // Served from the UserCache; the returned user is a copy
     public Optional<User> getUserById(Long id) {
-        return userRepository.findById(id);
+        return userCache.getById(id, () -> userRepository.findById(id));
     }
     public Optional<User> getUserByEmail(String email)
     {
-    	return userRepository.getUserByEmail(email);
+    	return userCache.getByEmail(email, () -> userRepository.getUserByEmail(email));
+    }
+
+    // Bypasses the UserCache, for checks that a write depends on
+    public Optional<User> loadUserByEmail(String email) {
+        return userRepository.getUserByEmail(email);
+    }
+
+    /**
+     * Admin listing: users matching every given filter (null means any), in
+     * id order, one keyset slice at a time. Only the summary columns are
+     * selected.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public CursorPage<UserSummaryDTO> findUsers(Role role, String gender, String emailPrefix, String cursor, int size) {
+        long after = cursor == null || cursor.isEmpty() ? Long.MIN_VALUE : KeysetCursor.decode(cursor, 1)[0];
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserSummaryDTO> query = cb.createQuery(UserSummaryDTO.class);
+        Root<User> user = query.from(User.class);
+        List<Predicate> where = new ArrayList<>();
+        where.add(cb.greaterThan(user.get("id"), after));
+        if (role != null) {
+            where.add(cb.equal(user.get("role"), role));
+        }
+        if (gender != null && !gender.isBlank()) {
+            where.add(cb.equal(user.get("gender"), gender));
+        }
+        if (emailPrefix != null && !emailPrefix.isBlank()) {
+            where.add(cb.like(user.get("email"), escapeLike(emailPrefix) + "%", '\\'));
+        }
+        query.select(cb.construct(UserSummaryDTO.class, user.get("id"), user.get("name"), user.get("email"),
+                        user.get("gender"), user.get("role")))
+                .where(where.toArray(new Predicate[0]))
+                .orderBy(cb.asc(user.get("id")));
+
+        // One extra row tells us whether another slice exists
+        List<UserSummaryDTO> rows = entityManager.createQuery(query).setMaxResults(size + 1).getResultList();
+        boolean hasNext = rows.size() > size;
+        List<UserSummaryDTO> items = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? KeysetCursor.encode(items.get(items.size() - 1).getId()) : null;
+        return new CursorPage<>(items, nextCursor, hasNext);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public UserCacheStats getCacheStats() {
+        return userCache.stats();
     }
 
     public String encodePassword(String password) {
-        return passwordEncoder.encode(password);
+        return PasswordHashingService.await(passwordHashingService.encode(password, null));
     }
 
     public void deleteUserById(Long id) {
         userRepository.deleteById(id);
+        userCache.invalidate(id);
+        // Tokens carry the account in their claims and would otherwise keep working
+        tokenService.revokeAll(id);
     }
 
     public User saveUser(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userCache.invalidate(saved.getId(), user.getEmail());
+        return saved;
     }
     
     public User getUserByEmailAndPassword(String email, String password) {
@@ -0,0 +1,63 @@
+package com.redtape.config;
+
+import com.redtape.controller.UserController;
+import com.redtape.dto.CursorPage;
+import com.redtape.entity.Role;
+import com.redtape.entity.User;
+import com.redtape.service.EmailService;
+import com.redtape.service.OtpService;
+import com.redtape.service.TokenService;
+import com.redtape.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(UserController.class)
+@Import({SecurityConfig.class, TokenService.class})
+class SecurityConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @MockitoBean
+    private UserService userService;
+
+    @MockitoBean
+    private OtpService otpService;
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @Test
+    void adminListingNeedsAnAdminToken() throws Exception {
+        when(userService.findUsers(any(), any(), any(), any(), anyInt())).thenReturn(new CursorPage<>(List.of(), null, false));
+
+        mockMvc.perform(get("/api/users/admin")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/users/admin").header("Authorization", "Bearer " + token(Role.USER)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/users/admin").header("Authorization", "Bearer " + token(Role.ADMIN)))
+                .andExpect(status().isOk());
+    }
+
+    private String token(Role role) {
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("a@x.com");
+        user.setRole(role);
+        return tokenService.issue(user);
+    }
+}
@@ -0,0 +1,57 @@
+package com.redtape.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AttemptLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final AttemptLimiter limiter = new AttemptLimiter(3, 10_000, now::get);
+
+    @Test
+    void keyIsRefusedAfterItsLimitUntilTheWindowEnds() {
+        assertTrue(limiter.tryAcquire("1.2.3.4"));
+        assertTrue(limiter.tryAcquire("1.2.3.4"));
+        assertTrue(limiter.tryAcquire("1.2.3.4"));
+        assertFalse(limiter.tryAcquire("1.2.3.4"));
+        assertTrue(limiter.tryAcquire("5.6.7.8"));
+
+        now.addAndGet(4_500);
+        assertEquals(6, limiter.retryAfterSeconds("1.2.3.4"));
+        now.addAndGet(5_500);
+        assertTrue(limiter.tryAcquire("1.2.3.4"));
+    }
+
+    @Test
+    void recordedFailuresBlockAndResetClears() {
+        limiter.record("a@x.com");
+        limiter.record("a@x.com");
+        assertFalse(limiter.isBlocked("a@x.com"));
+        limiter.record("a@x.com");
+        assertTrue(limiter.isBlocked("a@x.com"));
+
+        limiter.reset("a@x.com");
+        assertFalse(limiter.isBlocked("a@x.com"));
+    }
+
+    @Test
+    void purgeDropsOnlyFinishedWindows() {
+        limiter.record("old");
+        limiter.record("old");
+        limiter.record("old");
+        now.addAndGet(6_000);
+        limiter.record("new");
+        limiter.record("new");
+        limiter.record("new");
+        now.addAndGet(4_000);
+        limiter.purgeExpired();
+
+        assertFalse(limiter.isBlocked("old"));
+        assertTrue(limiter.isBlocked("new"));
+    }
+}
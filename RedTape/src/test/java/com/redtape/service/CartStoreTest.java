@@ -0,0 +1,136 @@
+package com.redtape.service;
+
+import com.redtape.entity.Cart;
+import com.redtape.entity.CartItem;
+import com.redtape.entity.Product;
+import com.redtape.entity.User;
+import com.redtape.repository.CartRepository;
+import com.redtape.repository.ProductRepository;
+import com.redtape.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CartStoreTest {
+
+    private static final String EMAIL = "a@x.com";
+
+    @TempDir
+    Path journalDir;
+
+    private final CartRepository cartRepository = mock(CartRepository.class);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    // The single row every write lands on
+    private final Cart row = new Cart();
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setEmail(EMAIL);
+        row.setId(1L);
+        row.setUser(user);
+        row.setItems(new ArrayList<>());
+
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(cartRepository.findByUserEmail(EMAIL)).thenReturn(Optional.of(row));
+        when(cartRepository.findById(1L)).thenReturn(Optional.of(row));
+        when(productRepository.getReferenceById(anyLong())).thenAnswer(invocation -> {
+            Product product = new Product();
+            product.setModelNo(invocation.getArgument(0));
+            return product;
+        });
+    }
+
+    @Test
+    void leftoverJournalIsReplayedBeforeAnyFlushDeletesIt() throws Exception {
+        Path leftover = journalDir.resolve("cart-1.log");
+        Files.writeString(leftover, "SET\t" + EMAIL + "\t7\t2\t1500\n");
+        when(cartRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        CartStore store = store();
+
+        // A scheduled flush that fires before recovery must leave the segment alone
+        store.flush();
+        assertTrue(Files.exists(leftover));
+        verify(cartRepository, never()).save(any());
+
+        store.recover();
+        assertFalse(Files.exists(leftover));
+        assertEquals(1, row.getItems().size());
+        CartItem item = row.getItems().get(0);
+        assertEquals(7L, item.getProduct().getModelNo());
+        assertEquals(2, item.getQuantity());
+        assertEquals(30.0, item.getPrice());
+    }
+
+    @Test
+    void evictionWaitsForARunningFlushSoItsNewerStateWins() throws Exception {
+        CountDownLatch flushWriting = new CountDownLatch(1);
+        CountDownLatch releaseFlush = new CountDownLatch(1);
+        AtomicBoolean first = new AtomicBoolean(true);
+        when(cartRepository.save(any())).thenAnswer(invocation -> {
+            if (first.getAndSet(false)) {
+                flushWriting.countDown();
+                releaseFlush.await(5, TimeUnit.SECONDS);
+            }
+            return invocation.getArgument(0);
+        });
+        CartStore store = store();
+        store.recover();
+
+        store.withCart(EMAIL, cart -> {
+            store.setLine(cart, 7, 1, 1000);
+            return null;
+        });
+        Thread flusher = new Thread(store::flush);
+        flusher.start();
+        assertTrue(flushWriting.await(5, TimeUnit.SECONDS));
+
+        // The flush holds a snapshot with quantity 1; the user moves on to 5 and the cart is evicted
+        store.withCart(EMAIL, cart -> {
+            store.setLine(cart, 7, 5, 1000);
+            return null;
+        });
+        Thread evictor = new Thread(() -> store.evict(EMAIL));
+        evictor.start();
+        evictor.join(200);
+        assertTrue(evictor.isAlive());
+
+        releaseFlush.countDown();
+        flusher.join(5_000);
+        evictor.join(5_000);
+        assertEquals(5, row.getItems().get(0).getQuantity());
+        assertEquals(50.0, row.getTotalAmount());
+    }
+
+    private CartStore store() throws Exception {
+        CartStore store = new CartStore(cartRepository, mock(UserRepository.class), productRepository,
+                new CartJournal(journalDir.toString(), false), transactionTemplate);
+        ReflectionTestUtils.setField(store, "idleEvictionMs", 60_000L);
+        ReflectionTestUtils.setField(store, "maxWriteAttempts", 3);
+        return store;
+    }
+}
@@ -0,0 +1,51 @@
+package com.redtape.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryOtpStoreTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    @Test
+    void codeExpiresAfterTtl() {
+        InMemoryOtpStore store = new InMemoryOtpStore(1_000, 5, now::get);
+        store.put("a@x.com", "123456", 100);
+
+        assertEquals(OtpStore.Result.VALID, store.check("a@x.com", "123456"));
+        now.addAndGet(100);
+        assertEquals(OtpStore.Result.EXPIRED, store.check("a@x.com", "123456"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void wrongGuessesLockTheCodeUntilReplaced() {
+        InMemoryOtpStore store = new InMemoryOtpStore(1_000, 3, now::get);
+        store.put("a@x.com", "123456", 10_000);
+
+        assertEquals(OtpStore.Result.INVALID, store.check("a@x.com", "000000"));
+        assertEquals(OtpStore.Result.INVALID, store.check("a@x.com", "000001"));
+        assertEquals(OtpStore.Result.LOCKED, store.check("a@x.com", "000002"));
+        assertEquals(OtpStore.Result.LOCKED, store.check("a@x.com", "123456"));
+
+        store.put("a@x.com", "654321", 10_000);
+        assertEquals(OtpStore.Result.VALID, store.check("a@x.com", "654321"));
+    }
+
+    @Test
+    void sizeIsBoundedAndSweepDropsExpiredCodes() {
+        InMemoryOtpStore store = new InMemoryOtpStore(160, 5, now::get);
+        for (int i = 0; i < 10_000; i++) {
+            store.put("user" + i + "@x.com", "123456", 100);
+        }
+        assertTrue(store.size() <= 160);
+
+        now.addAndGet(100);
+        store.purgeExpired();
+        assertEquals(0, store.size());
+    }
+}
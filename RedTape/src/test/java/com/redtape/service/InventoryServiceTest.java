@@ -0,0 +1,117 @@
+package com.redtape.service;
+
+import com.redtape.entity.OrderStatus;
+import com.redtape.entity.Product;
+import com.redtape.repository.OrderRepository;
+import com.redtape.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InventoryServiceTest {
+
+    private final ProductCatalog productCatalog = mock(ProductCatalog.class);
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+
+    @Test
+    void concurrentReservationsNeverTakeMoreThanIsInStock() throws InterruptedException {
+        stockOf(7L, 100);
+        InventoryService inventory = inventory();
+
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 500; i++) {
+            pool.execute(() -> {
+                try {
+                    inventory.reserve(Map.of(7L, 1));
+                    reserved.incrementAndGet();
+                } catch (InsufficientStockException e) {
+                    refused.incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, reserved.get());
+        assertEquals(400, refused.get());
+    }
+
+    @Test
+    void failedLineGivesBackTheLinesAlreadyTaken() {
+        stockOf(1L, 5);
+        stockOf(2L, 1);
+        InventoryService inventory = inventory();
+
+        assertThrows(InsufficientStockException.class, () -> inventory.reserve(Map.of(1L, 5, 2L, 2)));
+        inventory.reserve(Map.of(1L, 5));
+    }
+
+    @Test
+    void pendingOrdersFromBeforeARestartCanStillBeReleasedAndExpire() {
+        // The previous process already wrote the order's 2 units to the row
+        stockOf(7L, 0);
+        List<Object[]> pending = new ArrayList<>();
+        pending.add(new Object[]{41L, LocalDateTime.now().minusHours(1), 7L, 2});
+        pending.add(new Object[]{42L, LocalDateTime.now(), 7L, 1});
+        when(orderRepository.findLinesByStatus(OrderStatus.PENDING)).thenReturn(pending);
+        InventoryService inventory = inventory();
+        inventory.restoreHeld();
+
+        assertEquals(List.of(41L), inventory.expiredOrders());
+        assertTrue(inventory.release(41L));
+        assertFalse(inventory.release(41L));
+        inventory.reserve(Map.of(7L, 2));
+        assertThrows(InsufficientStockException.class, () -> inventory.reserve(Map.of(7L, 1)));
+    }
+
+    @Test
+    void withoutATtlPendingOrdersNeverExpire() {
+        stockOf(7L, 0);
+        List<Object[]> pending = new ArrayList<>();
+        pending.add(new Object[]{41L, LocalDateTime.now().minusDays(30), 7L, 2});
+        when(orderRepository.findLinesByStatus(OrderStatus.PENDING)).thenReturn(pending);
+        InventoryService inventory = inventory();
+        ReflectionTestUtils.setField(inventory, "reservationTtlMs", 0L);
+        inventory.restoreHeld();
+        inventory.hold(42L, inventory.adopt(Map.of(7L, 1)));
+
+        assertTrue(inventory.expiredOrders().isEmpty());
+        // Still held: cancelling gives the units back
+        assertTrue(inventory.release(41L));
+    }
+
+    private void stockOf(long modelNo, int quantity) {
+        Product product = new Product();
+        product.setModelNo(modelNo);
+        product.setQuantity(quantity);
+        when(productCatalog.findByModelNo(modelNo)).thenReturn(Optional.of(product));
+    }
+
+    private InventoryService inventory() {
+        InventoryService inventory = new InventoryService(productCatalog, mock(ProductRepository.class), orderRepository,
+                mock(JdbcTemplate.class), mock(TransactionTemplate.class), mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(inventory, "reservationTtlMs", 1_800_000L);
+        return inventory;
+    }
+}
@@ -0,0 +1,98 @@
+package com.redtape.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class MailDispatcherTest {
+
+    private final JavaMailSender mailSender = mock(JavaMailSender.class);
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private MailDispatcher dispatcher;
+
+    @AfterEach
+    void stop() {
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+    }
+
+    @Test
+    void queuedMessagesGoOutTogether() {
+        recordBatches(null);
+        dispatcher = new MailDispatcher(mailSender, 100, 1, 20, 3, 10);
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatch(message("user" + i + "@x.com"));
+        }
+        dispatcher.start();
+        dispatcher.stop();
+
+        assertEquals(1, batches.size());
+        assertEquals(5, batches.get(0).size());
+    }
+
+    @Test
+    void onlyRejectedMessagesAreRetried() throws InterruptedException {
+        AtomicBoolean failOnce = new AtomicBoolean(true);
+        recordBatches(failOnce);
+        dispatcher = new MailDispatcher(mailSender, 100, 1, 20, 3, 10);
+        dispatcher.dispatch(message("ok@x.com"));
+        dispatcher.dispatch(message("bad@x.com"));
+        dispatcher.start();
+
+        for (int i = 0; i < 100 && batches.size() < 2; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(List.of(List.of("ok@x.com", "bad@x.com"), List.of("bad@x.com")), batches);
+    }
+
+    @Test
+    void fullQueueIsReportedToTheCaller() {
+        dispatcher = new MailDispatcher(mailSender, 1, 1, 20, 3, 10);
+        dispatcher.dispatch(message("a@x.com"));
+        assertThrows(MailQueueFullException.class, () -> dispatcher.dispatch(message("b@x.com")));
+        assertEquals(1, dispatcher.queued());
+    }
+
+    // The first send fails for bad@x.com when failOnce is set
+    private void recordBatches(AtomicBoolean failOnce) {
+        doAnswer(invocation -> {
+            List<String> recipients = new ArrayList<>();
+            SimpleMailMessage rejected = null;
+            for (Object argument : invocation.getArguments()) {
+                SimpleMailMessage message = (SimpleMailMessage) argument;
+                recipients.add(message.getTo()[0]);
+                if (message.getTo()[0].startsWith("bad") && failOnce != null && failOnce.getAndSet(false)) {
+                    rejected = message;
+                }
+            }
+            batches.add(recipients);
+            if (rejected != null) {
+                throw new MailSendException(Map.of(rejected, new RuntimeException("550 mailbox unavailable")));
+            }
+            return null;
+        }).when(mailSender).send(any(SimpleMailMessage[].class));
+    }
+
+    private static SimpleMailMessage message(String to) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(to);
+        message.setSubject("Test");
+        message.setText("Hello");
+        return message;
+    }
+}
@@ -0,0 +1,166 @@
+package com.redtape.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redtape.dto.OrderIntakeStatus;
+import com.redtape.entity.Order;
+import com.redtape.entity.OrderItem;
+import com.redtape.entity.Product;
+import com.redtape.entity.User;
+import com.redtape.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderIntakeServiceTest {
+
+    @TempDir
+    Path intakeDir;
+
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final InventoryService inventoryService = mock(InventoryService.class);
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final AtomicLong ids = new AtomicLong();
+    private OrderIntakeService intake;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        doAnswer(invocation -> {
+            invocation.<Order>getArgument(0).setId(ids.incrementAndGet());
+            return null;
+        }).when(entityManager).persist(any(Order.class));
+        when(inventoryService.nextReconcile()).thenReturn(new InventoryService.ReconcilePass("run-1", 1));
+
+        intake = newIntake();
+    }
+
+    private OrderIntakeService newIntake() throws Exception {
+        OrderIntakeService service = new OrderIntakeService(orderRepository, inventoryService, entityManager,
+                transactionTemplate, mock(JdbcTemplate.class), mock(ApplicationEventPublisher.class),
+                new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(service, "intakeDir", intakeDir.toString());
+        ReflectionTestUtils.setField(service, "queueCapacity", 1_000);
+        ReflectionTestUtils.setField(service, "batchSize", 50);
+        ReflectionTestUtils.setField(service, "statusRetentionMs", 1L);
+        service.open();
+        return service;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        intake.stop();
+    }
+
+    @Test
+    void queuedOrdersSurvivePruningUntilTheWriterFinishesThem() throws Exception {
+        String reference = intake.submit(order()).getReference();
+        Thread.sleep(5);
+        intake.pruneStatuses();
+        assertEquals(OrderIntakeStatus.State.QUEUED, intake.status(reference).orElseThrow().getStatus());
+
+        intake.start();
+        awaitPersisted(List.of(reference));
+
+        // Finished entries do age out; the (empty) orders table answers after that
+        Thread.sleep(5);
+        intake.pruneStatuses();
+        assertTrue(intake.status(reference).isEmpty());
+    }
+
+    @Test
+    void writerOutcomeIsNeverOverwrittenByQueued() throws Exception {
+        intake.start();
+        List<String> references = new CopyOnWriteArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 400; i++) {
+            pool.execute(() -> references.add(intake.submit(order()).getReference()));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        awaitPersisted(references);
+    }
+
+    @Test
+    void restartKeepsStockThatWasReconciledBeforeTheStop() throws Exception {
+        // Reconciled on the way down, as InventoryService would
+        doAnswer(invocation -> {
+            when(inventoryService.lastReconciled()).thenReturn(new InventoryService.ReconcilePass("run-1", 1));
+            return null;
+        }).when(inventoryService).reconcile();
+        intake.submit(order());
+        intake.stop();
+
+        intake = newIntake();
+        intake.start();
+
+        verify(inventoryService).adopt(Map.of(7L, 1));
+        verify(inventoryService, times(1)).reserve(any());
+    }
+
+    @Test
+    void restartTakesStockAgainWhenItWasNeverReconciled() throws Exception {
+        intake.submit(order());
+        intake.stop();
+
+        intake = newIntake();
+        intake.start();
+
+        verify(inventoryService, never()).adopt(any());
+        verify(inventoryService, times(2)).reserve(Map.of(7L, 1));
+    }
+
+    private void awaitPersisted(List<String> references) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        for (String reference : references) {
+            while (intake.status(reference).orElseThrow().getStatus() != OrderIntakeStatus.State.PERSISTED) {
+                assertTrue(System.currentTimeMillis() < deadline, "Order " + reference + " never left QUEUED");
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private static Order order() {
+        User user = new User();
+        user.setId(1L);
+        Product product = new Product();
+        product.setModelNo(7L);
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(1);
+        item.setPrice(10.0);
+        Order order = new Order();
+        order.setUser(user);
+        order.setItems(List.of(item));
+        order.setTotalAmount(10.0);
+        return order;
+    }
+}
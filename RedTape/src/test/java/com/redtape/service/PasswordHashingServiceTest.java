@@ -0,0 +1,31 @@
+package com.redtape.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PasswordHashingServiceTest {
+
+    private final PasswordEncoder encoder = mock(PasswordEncoder.class);
+    private final PasswordHashingService hashing = new PasswordHashingService(encoder, 1, 10, 100, 2, 60_000);
+
+    @AfterEach
+    void shutdown() {
+        hashing.shutdown();
+    }
+
+    @Test
+    void changingTheEmailsCaseDoesNotGetAFreshFailureCounter() {
+        when(encoder.matches(anyString(), anyString())).thenReturn(false);
+
+        assertFalse(PasswordHashingService.await(hashing.matches("guess1", "hash", "1.2.3.4", "a@x.com")));
+        assertFalse(PasswordHashingService.await(hashing.matches("guess2", "hash", "1.2.3.4", "A@X.com")));
+        assertThrows(TooManyAttemptsException.class, () -> hashing.matches("guess3", "hash", "1.2.3.4", " a@X.COM"));
+    }
+}
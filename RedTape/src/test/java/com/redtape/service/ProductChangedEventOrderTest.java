@@ -0,0 +1,89 @@
+package com.redtape.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redtape.entity.Category;
+import com.redtape.entity.Product;
+import com.redtape.entity.SubCategory;
+import com.redtape.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.event.TransactionalEventListenerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+/**
+ * The catalog read models listen to the same event and build on each other,
+ * so the order they run in is part of their contract.
+ */
+class ProductChangedEventOrderTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+
+    private final ProductCatalog productCatalog = spy(new ProductCatalog(productRepository));
+    private final ProductFilterIndex productFilterIndex = spy(new ProductFilterIndex(productCatalog));
+    private final CatalogVersions catalogVersions = spy(new CatalogVersions(productCatalog));
+    private final CatalogResponseCache catalogResponseCache = spy(new CatalogResponseCache(productFilterIndex,
+            catalogVersions, new ObjectMapper()));
+
+    private final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findAll()).thenReturn(new ArrayList<>(List.of(product(1))));
+        context.registerBean(TransactionalEventListenerFactory.class);
+        // Dependents first, so bean-definition order alone would run them too early
+        context.registerBean("catalogResponseCache", CatalogResponseCache.class, () -> catalogResponseCache);
+        context.registerBean("catalogVersions", CatalogVersions.class, () -> catalogVersions);
+        context.registerBean("productFilterIndex", ProductFilterIndex.class, () -> productFilterIndex);
+        context.registerBean("productCatalog", ProductCatalog.class, () -> productCatalog);
+        context.refresh();
+        productFilterIndex.search(null, null, null, null, null, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void versionsMoveOnlyAfterTheCatalogAndFilterIndexHaveTheChange() {
+        ProductChangedEvent event = ProductChangedEvent.saved(product(2));
+        context.publishEvent(event);
+
+        InOrder order = inOrder(catalogVersions, productCatalog, productFilterIndex);
+        order.verify(catalogVersions).capturePrevious(event);
+        order.verify(productCatalog).onProductChanged(event);
+        order.verify(productFilterIndex).onProductChanged(event);
+        order.verify(catalogVersions).onProductChanged(event);
+    }
+
+    @Test
+    void responseCacheIsClearedAfterTheVersionsMove() {
+        ProductChangedEvent event = ProductChangedEvent.saved(product(2));
+        context.publishEvent(event);
+
+        InOrder order = inOrder(productCatalog, productFilterIndex, catalogVersions, catalogResponseCache);
+        order.verify(productCatalog).onProductChanged(event);
+        order.verify(productFilterIndex).onProductChanged(event);
+        order.verify(catalogVersions).onProductChanged(event);
+        order.verify(catalogResponseCache).onProductChanged(event);
+    }
+
+    private static Product product(long modelNo) {
+        Product product = new Product();
+        product.setModelNo(modelNo);
+        product.setName("Shoe " + modelNo);
+        product.setCategory(Category.MEN);
+        product.setSubCategory(SubCategory.BOOTS);
+        return product;
+    }
+}
@@ -0,0 +1,46 @@
+package com.redtape.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redtape.entity.Product;
+import com.redtape.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductExportServiceTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ProductExportService export = new ProductExportService(productRepository, mock(EntityManager.class),
+            objectMapper);
+
+    @Test
+    void everyRowIsOneLineOfJson() throws Exception {
+        when(productRepository.streamAll()).thenReturn(Stream.of(product(1), product(2), product(3)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        export.exportCatalog(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertEquals(4, lines.length);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, objectMapper.readTree(lines[i]).get("modelNo").asLong());
+            assertEquals('{', lines[i].charAt(0));
+        }
+        assertEquals("", lines[3]);
+    }
+
+    private static Product product(long modelNo) {
+        Product product = new Product();
+        product.setModelNo(modelNo);
+        product.setName("Shoe " + modelNo);
+        return product;
+    }
+}
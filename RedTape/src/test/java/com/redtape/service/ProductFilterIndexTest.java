@@ -0,0 +1,142 @@
+package com.redtape.service;
+
+import com.redtape.entity.Category;
+import com.redtape.entity.Product;
+import com.redtape.entity.SubCategory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductFilterIndexTest {
+
+    private static final String[] COLORS = {"Black", "Brown", "Tan", "White"};
+
+    private final ProductCatalog productCatalog = mock(ProductCatalog.class);
+    private final ProductFilterIndex index = new ProductFilterIndex(productCatalog);
+
+    // What the catalog holds; events below keep it and the index in step
+    private final TreeMap<Long, Product> catalog = new TreeMap<>();
+
+    @Test
+    void changesAreAppliedWithoutRereadingTheCatalog() {
+        load(product(1, Category.MEN, SubCategory.BOOTS, 100, 5, "Black"),
+                product(2, Category.WOMEN, SubCategory.CASUAL, 50, 0, "Tan"));
+        assertEquals(List.of(1L), modelNos(index.search(Category.MEN, null, null, null, null, null)));
+
+        change(product(2, Category.MEN, SubCategory.CASUAL, 80, 3, "black"));
+        change(product(3, Category.MEN, SubCategory.BOOTS, 120, 1, "Brown"));
+        delete(1);
+
+        assertEquals(List.of(2L, 3L), modelNos(index.search(Category.MEN, null, null, null, null, null)));
+        assertEquals(List.of(2L), modelNos(index.search(null, null, null, null, "BLACK", null)));
+        assertEquals(List.of(2L), modelNos(index.search(null, null, 60.0, 100.0, null, 2)));
+        verify(productCatalog, times(1)).values();
+    }
+
+    @Test
+    void resultsStayInModelNoOrderWhenAnOlderProductIsAdded() {
+        load(product(5, Category.MEN, SubCategory.BOOTS, 10, 1, "Black"));
+        change(product(2, Category.MEN, SubCategory.BOOTS, 20, 1, "Black"));
+
+        assertEquals(List.of(2L, 5L), modelNos(index.search(Category.MEN, null, null, null, null, null)));
+    }
+
+    @Test
+    void matchesAFullScanAfterRandomChanges() {
+        Random random = new Random(42);
+        List<Product> initial = new ArrayList<>();
+        for (long modelNo = 1; modelNo <= 50; modelNo++) {
+            initial.add(randomProduct(random, modelNo));
+        }
+        load(initial.toArray(new Product[0]));
+
+        // Enough deletes to force at least one rebuild on the way
+        for (int i = 0; i < 2000; i++) {
+            long modelNo = 1 + random.nextInt(200);
+            if (random.nextInt(3) == 0) {
+                delete(modelNo);
+            } else {
+                change(randomProduct(random, modelNo));
+            }
+            if (i % 100 == 0) {
+                assertSameAsScan(random);
+            }
+        }
+        assertSameAsScan(random);
+    }
+
+    private void assertSameAsScan(Random random) {
+        for (int q = 0; q < 20; q++) {
+            Category category = random.nextBoolean() ? null : Category.values()[random.nextInt(Category.values().length)];
+            SubCategory subCategory = random.nextBoolean() ? null
+                    : SubCategory.values()[random.nextInt(SubCategory.values().length)];
+            Double minPrice = random.nextBoolean() ? null : (double) random.nextInt(100);
+            Double maxPrice = random.nextBoolean() ? null : (double) (50 + random.nextInt(100));
+            String color = random.nextInt(4) == 0 ? COLORS[random.nextInt(COLORS.length)] : null;
+            Integer minQuantity = random.nextBoolean() ? null : random.nextInt(10);
+
+            List<Long> expected = new ArrayList<>();
+            for (Product p : catalog.values()) {
+                if ((category == null || p.getCategory() == category)
+                        && (subCategory == null || p.getSubCategory() == subCategory)
+                        && (minPrice == null || p.getPrice() >= minPrice)
+                        && (maxPrice == null || p.getPrice() <= maxPrice)
+                        && (color == null || p.getColor().toLowerCase(Locale.ROOT).equals(color.toLowerCase(Locale.ROOT)))
+                        && (minQuantity == null || p.getQuantity() >= minQuantity)) {
+                    expected.add(p.getModelNo());
+                }
+            }
+            assertEquals(expected, modelNos(index.search(category, subCategory, minPrice, maxPrice, color, minQuantity)));
+        }
+    }
+
+    private void load(Product... products) {
+        for (Product product : products) {
+            catalog.put(product.getModelNo(), product);
+        }
+        when(productCatalog.values()).thenAnswer(inv -> new ArrayList<>(catalog.values()));
+        index.search(null, null, null, null, null, null);
+    }
+
+    private void change(Product product) {
+        catalog.put(product.getModelNo(), product);
+        index.onProductChanged(ProductChangedEvent.saved(product));
+    }
+
+    private void delete(long modelNo) {
+        catalog.remove(modelNo);
+        index.onProductChanged(ProductChangedEvent.deleted(modelNo));
+    }
+
+    private static Product randomProduct(Random random, long modelNo) {
+        return product(modelNo, Category.values()[random.nextInt(Category.values().length)],
+                SubCategory.values()[random.nextInt(SubCategory.values().length)], random.nextInt(150),
+                random.nextInt(10), COLORS[random.nextInt(COLORS.length)]);
+    }
+
+    private static Product product(long modelNo, Category category, SubCategory subCategory, double price,
+                                   int quantity, String color) {
+        Product product = new Product();
+        product.setModelNo(modelNo);
+        product.setCategory(category);
+        product.setSubCategory(subCategory);
+        product.setPrice(price);
+        product.setQuantity(quantity);
+        product.setColor(color);
+        return product;
+    }
+
+    private static List<Long> modelNos(List<Product> products) {
+        return products.stream().map(Product::getModelNo).toList();
+    }
+}
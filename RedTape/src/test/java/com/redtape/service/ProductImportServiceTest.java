@@ -0,0 +1,150 @@
+package com.redtape.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redtape.dto.ImportReport;
+import com.redtape.entity.Product;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ProductImportServiceTest {
+
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final ProductImportService importer = new ProductImportService(entityManager, transactionTemplate,
+            eventPublisher, new ObjectMapper());
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(importer, "chunkSize", 2);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void syntaxErrorMidStreamReturnsWhatWasSaved() {
+        ImportReport report = importer.importJson(stream(
+                "[{\"name\":\"A\"},{\"name\":\"B\"},{\"name\":\"C\"},{\"name\":\"D\" oops}]"));
+
+        assertTrue(report.isAborted());
+        assertEquals(4L, report.getAbortedAtRow());
+        assertTrue(report.getAbortReason().contains("line 1"));
+        assertEquals(3, report.getTotalRows());
+        assertEquals(3, report.getImported());
+    }
+
+    @Test
+    void truncatedUploadIsAborted() {
+        ImportReport report = importer.importJson(stream("[{\"name\":\"A\"},"));
+
+        assertTrue(report.isAborted());
+        assertEquals(2L, report.getAbortedAtRow());
+        assertEquals(1, report.getImported());
+    }
+
+    @Test
+    void bodyThatIsNotAnArrayIsAbortedAtTheFirstRow() {
+        ImportReport report = importer.importJson(stream("{\"name\":\"A\"}"));
+
+        assertTrue(report.isAborted());
+        assertEquals(1L, report.getAbortedAtRow());
+        assertEquals(0, report.getImported());
+    }
+
+    @Test
+    void brokenCsvConnectionKeepsEarlierChunks() {
+        InputStream broken = new SequenceInputStream(stream("name,price\nA,1\nB,2\nC,3\n"), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        });
+        ImportReport report = importer.importCsv(broken);
+
+        assertTrue(report.isAborted());
+        assertEquals(4L, report.getAbortedAtRow());
+        assertEquals(3, report.getImported());
+    }
+
+    @Test
+    void cleanUploadIsNotAborted() {
+        ImportReport report = importer.importJson(stream("[{\"name\":\"A\"},{\"name\":\"\"}]"));
+
+        assertFalse(report.isAborted());
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getFailed());
+    }
+
+    @Test
+    void overLongFieldIsRejectedWithoutTouchingTheRestOfTheChunk() {
+        ImportReport report = importer.importJson(stream("[{\"name\":\"A\"},{\"name\":\"" + "x".repeat(51) + "\"}]"));
+
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertEquals(2L, report.getErrors().get(0).getRow());
+    }
+
+    @Test
+    void chunkTheDatabaseRefusesIsRetriedRowByRow() {
+        doThrow(new IllegalStateException("constraint violated")).when(entityManager)
+                .persist(argThat((Product p) -> "Bad".equals(p.getName())));
+
+        ImportReport report = importer.importJson(stream("[{\"name\":\"A\"},{\"name\":\"Bad\"},{\"name\":\"C\"}]"));
+
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertEquals(2L, report.getErrors().get(0).getRow());
+        assertTrue(report.getErrors().get(0).getMessage().contains("constraint violated"));
+    }
+
+    @Test
+    void quotedCsvFieldMaySpanLines() {
+        ImportReport report = importer.importCsv(stream("name,description\nA,\"two\nlines, \"\"quoted\"\"\"\nB,x\n"));
+
+        assertFalse(report.isAborted());
+        assertEquals(2, report.getTotalRows());
+        assertEquals(2, report.getImported());
+        ArgumentCaptor<ProductChangedEvent> saved = ArgumentCaptor.forClass(ProductChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(saved.capture());
+        assertEquals("two\nlines, \"quoted\"", saved.getAllValues().get(0).getProduct().getDescription());
+    }
+
+    @Test
+    void csvEndingInsideAQuotedFieldIsAborted() {
+        ImportReport report = importer.importCsv(stream("name,description\nA,x\nB,\"never closed\n"));
+
+        assertTrue(report.isAborted());
+        assertEquals(2L, report.getAbortedAtRow());
+        assertEquals(1, report.getImported());
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,60 @@
+package com.redtape.service;
+
+import com.redtape.entity.Product;
+import com.redtape.repository.ProductRatingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductRatingServiceTest {
+
+    private final ProductRatingRepository ratingRepository = mock(ProductRatingRepository.class);
+    private final ProductCatalog productCatalog = mock(ProductCatalog.class);
+    private final ProductRatingService ratings = new ProductRatingService(ratingRepository, mock(TransactionTemplate.class),
+            productCatalog);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ratings, "cacheSize", 2);
+        when(ratingRepository.findAllById(anyIterable())).thenReturn(List.of());
+        when(productCatalog.findByModelNo(anyLong())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void unknownIdsAreAnsweredButNotCached() {
+        assertEquals(0, ratings.getRatings(List.of(900L, 901L)).get(1).getReviewCount());
+        ratings.getRatings(List.of(900L, 901L));
+
+        verify(ratingRepository, times(2)).findAllById(anyIterable());
+    }
+
+    @Test
+    void unratedCatalogProductsAreCachedUpToTheCap() {
+        for (long modelNo = 1; modelNo <= 3; modelNo++) {
+            when(productCatalog.findByModelNo(modelNo)).thenReturn(Optional.of(new Product()));
+        }
+        ratings.getRating(1L);
+        ratings.getRating(2L);
+        ratings.getRating(2L);
+        verify(ratingRepository, times(2)).findAllById(anyIterable());
+
+        // Pushes out 1, the least recently used
+        ratings.getRating(3L);
+        ratings.getRating(2L);
+        verify(ratingRepository, times(3)).findAllById(anyIterable());
+        ratings.getRating(1L);
+        verify(ratingRepository, times(4)).findAllById(anyIterable());
+    }
+}
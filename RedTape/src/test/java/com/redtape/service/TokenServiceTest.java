@@ -0,0 +1,100 @@
+package com.redtape.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redtape.entity.Role;
+import com.redtape.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenServiceTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private final TokenService tokens = new TokenService(new ObjectMapper(), SECRET, 60_000);
+
+    @Test
+    void issuedTokenVerifiesToTheSameUser() {
+        AuthenticatedUser caller = tokens.verify(tokens.issue(user(7L, Role.ADMIN))).orElseThrow();
+
+        assertEquals(7L, caller.id());
+        assertEquals("a@x.com", caller.email());
+        assertEquals(Role.ADMIN, caller.role());
+    }
+
+    @Test
+    void tamperedOrForeignTokensAreRejected() {
+        String token = tokens.issue(user(7L, Role.USER));
+        String body = token.substring(0, token.indexOf('.'));
+        String signature = token.substring(token.indexOf('.') + 1);
+
+        // Claims rewritten to ADMIN but signed with the original signature
+        String forgedClaims = new String(Base64.getUrlDecoder().decode(body)).replace("\"USER\"", "\"ADMIN\"");
+        String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(forgedClaims.getBytes()) + "." + signature;
+        assertTrue(tokens.verify(forged).isEmpty());
+
+        byte[] otherKey = new byte[32];
+        otherKey[0] = 1;
+        TokenService other = new TokenService(new ObjectMapper(), Base64.getEncoder().encodeToString(otherKey), 60_000);
+        assertTrue(tokens.verify(other.issue(user(7L, Role.USER))).isEmpty());
+
+        assertTrue(tokens.verify(body).isEmpty());
+        assertTrue(tokens.verify(token + ".x").isEmpty());
+        assertTrue(tokens.verify("!!!." + signature).isEmpty());
+        assertTrue(tokens.verify(null).isEmpty());
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        TokenService shortLived = new TokenService(new ObjectMapper(), SECRET, 0);
+        assertTrue(shortLived.verify(shortLived.issue(user(7L, Role.USER))).isEmpty());
+    }
+
+    @Test
+    void revokingOneTokenLeavesTheOthers() {
+        String first = tokens.issue(user(7L, Role.USER));
+        String second = tokens.issue(user(7L, Role.USER));
+
+        tokens.revoke(tokens.verify(first).orElseThrow());
+
+        assertTrue(tokens.verify(first).isEmpty());
+        assertTrue(tokens.verify(second).isPresent());
+    }
+
+    @Test
+    void revokeAllCutsOffEarlierTokensOfThatUserOnly() throws InterruptedException {
+        String mine = tokens.issue(user(7L, Role.USER));
+        String someoneElses = tokens.issue(user(8L, Role.USER));
+
+        tokens.revokeAll(7L);
+        Thread.sleep(2);
+        String issuedAfter = tokens.issue(user(7L, Role.USER));
+
+        assertTrue(tokens.verify(mine).isEmpty());
+        assertTrue(tokens.verify(someoneElses).isPresent());
+        assertTrue(tokens.verify(issuedAfter).isPresent());
+    }
+
+    @Test
+    void userWithoutARoleGetsAPlainUserToken() {
+        assertEquals(Role.USER, tokens.verify(tokens.issue(user(7L, null))).orElseThrow().role());
+    }
+
+    @Test
+    void shortSecretIsRefused() {
+        String shortSecret = Base64.getEncoder().encodeToString(new byte[16]);
+        assertThrows(IllegalStateException.class, () -> new TokenService(new ObjectMapper(), shortSecret, 60_000));
+    }
+
+    private static User user(long id, Role role) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("a@x.com");
+        user.setRole(role);
+        return user;
+    }
+}
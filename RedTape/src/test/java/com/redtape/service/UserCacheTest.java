@@ -0,0 +1,105 @@
+package com.redtape.service;
+
+import com.redtape.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final UserCache cache = new UserCache(100, 1_000, 100, now::get);
+
+    @Test
+    void entriesAreServedUntilTheirTtlRunsOut() {
+        Supplier<Optional<User>> loader = counting(user(1L, "a@x.com", "Ann"));
+
+        cache.getByEmail("a@x.com", loader);
+        assertEquals("Ann", cache.getById(1L, loader).orElseThrow().getName());
+        assertEquals(1, loads.get());
+
+        now.addAndGet(1_000);
+        cache.getByEmail("a@x.com", loader);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void unknownEmailsAreRememberedForTheShorterTtl() {
+        Supplier<Optional<User>> loader = counting(null);
+
+        assertTrue(cache.getByEmail("nobody@x.com", loader).isEmpty());
+        assertTrue(cache.getByEmail("nobody@x.com", loader).isEmpty());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().getNegativeHits());
+
+        now.addAndGet(100);
+        cache.getByEmail("nobody@x.com", loader);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void signingUpClearsACachedMiss() {
+        cache.getByEmail("new@x.com", counting(null));
+        cache.invalidate(5L, "new@x.com");
+
+        assertEquals("New", cache.getByEmail("new@x.com", counting(user(5L, "new@x.com", "New"))).orElseThrow().getName());
+    }
+
+    @Test
+    void loadOverlappingAnInvalidationIsNotCached() {
+        // The row is read, then a write commits and invalidates before the read is cached
+        Supplier<Optional<User>> staleLoader = () -> {
+            loads.incrementAndGet();
+            Optional<User> stale = Optional.of(user(1L, "a@x.com", "Old name"));
+            cache.invalidate(1L, "a@x.com");
+            return stale;
+        };
+        cache.getByEmail("a@x.com", staleLoader);
+
+        User fresh = cache.getByEmail("a@x.com", counting(user(1L, "a@x.com", "New name"))).orElseThrow();
+        assertEquals("New name", fresh.getName());
+    }
+
+    @Test
+    void callersGetCopies() {
+        cache.getById(1L, counting(user(1L, "a@x.com", "Ann"))).orElseThrow().setName("Changed");
+
+        assertEquals("Ann", cache.getById(1L, counting(null)).orElseThrow().getName());
+    }
+
+    @Test
+    void sizeIsCappedByEvictingTheLeastRecentlyUsed() {
+        UserCache small = new UserCache(2, 1_000, 100, now::get);
+        small.getById(1L, counting(user(1L, "a@x.com", "A")));
+        small.getById(2L, counting(user(2L, "b@x.com", "B")));
+        small.getById(1L, counting(null));
+        small.getById(3L, counting(user(3L, "c@x.com", "C")));
+
+        assertEquals(2, small.stats().getSize());
+        assertTrue(small.getById(1L, counting(null)).isPresent());
+        assertTrue(small.getById(2L, counting(null)).isEmpty());
+    }
+
+    // Returns the user (or no user when null) and counts the load
+    private Supplier<Optional<User>> counting(User user) {
+        return () -> {
+            loads.incrementAndGet();
+            return Optional.ofNullable(user);
+        };
+    }
+
+    private static User user(long id, String email, String name) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        user.setName(name);
+        return user;
+    }
+}
@@ -0,0 +1,92 @@
+package com.redtape.service;
+
+import com.redtape.entity.Role;
+import com.redtape.entity.User;
+import com.redtape.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final PasswordHashingService hashing = mock(PasswordHashingService.class);
+    private final TokenService tokenService = mock(TokenService.class);
+    private final UserService userService = new UserService(userRepository, hashing, tokenService,
+            mock(UserCache.class), mock(EntityManager.class));
+
+    @Test
+    void correctPasswordLogsInEvenWhenTheHashUpgradeIsTurnedAway() {
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("a@x.com");
+        user.setPassword("$2a$04$legacy");
+        when(userRepository.getUserByEmail("a@x.com")).thenReturn(Optional.of(user));
+        when(hashing.matches("secret", "$2a$04$legacy", "1.2.3.4", "a@x.com"))
+                .thenReturn(CompletableFuture.completedFuture(true));
+        when(hashing.needsRehash("$2a$04$legacy")).thenReturn(true);
+        when(hashing.rehash("secret")).thenThrow(new PasswordHashingBusyException());
+
+        Optional<User> result = PasswordHashingService.await(userService.authenticate("a@x.com", "secret", "1.2.3.4"));
+
+        assertTrue(result.isPresent());
+        verify(userRepository, never()).replacePassword(anyLong(), any(), any());
+    }
+
+    @Test
+    void updateWithoutARoleKeepsTheCurrentOne() {
+        User stored = new User();
+        stored.setId(1L);
+        stored.setEmail("a@x.com");
+        stored.setRole(Role.ADMIN);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(stored));
+        when(userRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        User changes = new User();
+        changes.setName("Renamed");
+        changes.setEmail("a@x.com");
+        User saved = userService.updateUser(1L, changes, "1.2.3.4").orElseThrow();
+
+        assertEquals(Role.ADMIN, saved.getRole());
+        verify(tokenService, never()).revokeAll(anyLong());
+    }
+
+    @Test
+    void changingThePasswordWritesOnlyThePasswordColumn() {
+        when(hashing.encode("new-secret", "1.2.3.4")).thenReturn(CompletableFuture.completedFuture("$2a$12$new"));
+        when(userRepository.setPassword(1L, "$2a$12$new")).thenReturn(1);
+
+        assertTrue(userService.changePassword(1L, "new-secret", "1.2.3.4"));
+
+        verify(userRepository, never()).save(any());
+        verify(tokenService).revokeAll(1L);
+    }
+
+    @Test
+    void changingThePasswordOfAMissingUserReportsIt() {
+        when(hashing.encode("new-secret", "1.2.3.4")).thenReturn(CompletableFuture.completedFuture("$2a$12$new"));
+
+        assertFalse(userService.changePassword(1L, "new-secret", "1.2.3.4"));
+
+        verify(tokenService, never()).revokeAll(anyLong());
+    }
+
+    @Test
+    void deletingAUserRevokesTheirTokens() {
+        userService.deleteUserById(1L);
+
+        verify(tokenService).revokeAll(1L);
+    }
+}